@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Searches all files with a given name below a directory on the machine the directory is located
+ * on. The whole directory tree is walked in a single call instead of one remoting round trip per
+ * file or directory.
+ */
+class FindFilesCallable extends MasterToSlaveFileCallable<ArrayList<String>> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String fileName;
+
+  private final int maxResults;
+
+  /**
+   * @param fileName
+   *          The file name that has to be found, the case is ignored
+   */
+  FindFilesCallable(String fileName) {
+    this(fileName, 0);
+  }
+
+  /**
+   * @param fileName
+   *          The file name that has to be found, the case is ignored
+   * @param maxResults
+   *          The walk stops after this number of files were found, 0 for no limit
+   */
+  FindFilesCallable(String fileName, int maxResults) {
+    this.fileName = fileName;
+    this.maxResults = maxResults;
+  }
+
+  @Override
+  public ArrayList<String> invoke(File rootdir, VirtualChannel channel)
+      throws IOException, InterruptedException {
+    ArrayList<String> result = new ArrayList<>();
+    for (File f : find(rootdir, fileName, maxResults)) {
+      result.add(f.getAbsolutePath());
+    }
+    return result;
+  }
+
+  /**
+   * Finds all files with the name "fileName" in directory "rootdir" on the local machine.
+   * Directories that cannot be read are skipped.
+   * 
+   * @param rootdir
+   *          The directory that should be searched
+   * @param fileName
+   *          The file name that has to be found, the case is ignored
+   * @return the found files, empty if "rootdir" does not exist
+   * @throws IOException
+   *           If the directory could not be walked
+   * @throws InterruptedException
+   *           If the job was interrupted
+   */
+  static List<File> find(File rootdir, String fileName) throws IOException, InterruptedException {
+    return find(rootdir, fileName, 0);
+  }
+
+  /**
+   * Finds the files with the name "fileName" in directory "rootdir" on the local machine, but stops
+   * the walk as soon as "maxResults" files were found. Directories that cannot be read are
+   * skipped.
+   * 
+   * @param rootdir
+   *          The directory that should be searched
+   * @param fileName
+   *          The file name that has to be found, the case is ignored
+   * @param maxResults
+   *          The maximal number of files to find, 0 for no limit
+   * @return the found files, empty if "rootdir" does not exist
+   * @throws IOException
+   *           If the directory could not be walked
+   * @throws InterruptedException
+   *           If the job was interrupted
+   */
+  static List<File> find(File rootdir, String fileName, int maxResults)
+      throws IOException, InterruptedException {
+    List<File> files = new ArrayList<>();
+    Path root = rootdir.toPath();
+    if (!Files.exists(root)) {
+      return files;
+    }
+    FileVisitor visitor = new FileVisitor(fileName, maxResults, files);
+    Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+        visitor);
+    if (visitor.interrupted) {
+      throw new InterruptedException();
+    }
+    return files;
+  }
+
+  private static class FileVisitor extends SimpleFileVisitor<Path> {
+
+    private final String fileName;
+
+    private final int maxResults;
+
+    private final List<File> files;
+
+    private boolean interrupted = false;
+
+    FileVisitor(String fileName, int maxResults, List<File> files) {
+      this.fileName = fileName;
+      this.maxResults = maxResults;
+      this.files = files;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+      if (Thread.interrupted()) {
+        interrupted = true;
+        return FileVisitResult.TERMINATE;
+      }
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+      if (attrs.isRegularFile() && file.getFileName().toString().equalsIgnoreCase(fileName)) {
+        files.add(file.toFile());
+        if (maxResults > 0 && files.size() >= maxResults) {
+          return FileVisitResult.TERMINATE;
+        }
+      }
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+      // unreadable directories and symbolic link cycles are skipped
+      return FileVisitResult.CONTINUE;
+    }
+  }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+
+/**
+ * Invisible action attached to the builds of a worker job to tell them which distributing build
+ * scheduled them, so they only take workloads of this build.
+ */
+public class InvisibleActionDistributingJob extends InvisibleAction {
+
+  private final String distributingJobRunId;
+
+  /**
+   * @param distributingJobRun
+   *          the distributing build that schedules the worker job build
+   */
+  public InvisibleActionDistributingJob(Run< ? , ? > distributingJobRun) {
+    this.distributingJobRunId = distributingJobRun.getExternalizableId();
+  }
+
+  /**
+   * @return the externalizable id of the distributing build
+   */
+  public String getDistributingJobRunId() {
+    return distributingJobRunId;
+  }
+
+}
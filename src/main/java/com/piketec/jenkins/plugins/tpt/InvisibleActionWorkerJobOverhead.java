@@ -0,0 +1,49 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import hudson.model.InvisibleAction;
+
+/**
+ * Invisible action to store the average time a worker job of a distributing build needed in
+ * addition to executing its test cases. It is used to choose the number of worker jobs of the next
+ * build.
+ */
+public class InvisibleActionWorkerJobOverhead extends InvisibleAction {
+
+  private final long overhead;
+
+  /**
+   * @param overhead
+   *          the average overhead of a worker job in milliseconds
+   */
+  public InvisibleActionWorkerJobOverhead(long overhead) {
+    this.overhead = overhead;
+  }
+
+  /**
+   * @return the average overhead of a worker job in milliseconds
+   */
+  public long getOverhead() {
+    return overhead;
+  }
+
+}
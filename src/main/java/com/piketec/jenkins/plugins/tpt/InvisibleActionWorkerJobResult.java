@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import hudson.model.InvisibleAction;
+
+/**
+ * Invisible action attached to a worker job build to tell the distributing job how many of the
+ * executed test cases failed, so it can stop early if too many test cases fail.
+ */
+public class InvisibleActionWorkerJobResult extends InvisibleAction {
+
+  private final int testCaseCount;
+
+  private final int failedCount;
+
+  private final int executionErrorCount;
+
+  private final int missingResultCount;
+
+  /**
+   * @param testCaseCount
+   *          the number of test cases the worker tried to execute
+   * @param failedCount
+   *          the number of test cases that failed
+   * @param executionErrorCount
+   *          the number of test cases with an execution error
+   * @param missingResultCount
+   *          the number of test cases without result, e.g. because they were skipped by a test set
+   *          condition
+   */
+  public InvisibleActionWorkerJobResult(int testCaseCount, int failedCount,
+                                        int executionErrorCount, int missingResultCount) {
+    this.testCaseCount = testCaseCount;
+    this.failedCount = failedCount;
+    this.executionErrorCount = executionErrorCount;
+    this.missingResultCount = missingResultCount;
+  }
+
+  /**
+   * @return the number of test cases the worker tried to execute
+   */
+  public int getTestCaseCount() {
+    return testCaseCount;
+  }
+
+  /**
+   * @return the number of test cases that failed
+   */
+  public int getFailedCount() {
+    return failedCount;
+  }
+
+  /**
+   * @return the number of test cases with an execution error
+   */
+  public int getExecutionErrorCount() {
+    return executionErrorCount;
+  }
+
+  /**
+   * @return the number of test cases without result
+   */
+  public int getMissingResultCount() {
+    return missingResultCount;
+  }
+
+}
@@ -20,9 +20,10 @@
  */
 package com.piketec.jenkins.plugins.tpt;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 
 import javax.xml.stream.FactoryConfigurationError;
@@ -35,6 +36,8 @@ import com.piketec.jenkins.plugins.tpt.TptLog.LogLevel;
 import com.piketec.jenkins.plugins.tpt.Configuration.JenkinsConfiguration;
 
 import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
 
 /**
  * Class for helper methods to collect and tranform TPT test result.
@@ -76,7 +79,7 @@ public final class Publish {
       xmlPub.initalize(jUnitXMLFile);
       xmlPub.writeTestsuite(tptFileName);
       logger.info("Collecting test cases");
-      TestCasesParseResult testdata = getTestcases(testDataDir, logger);
+      TestCasesParseResult testdata = getTestcases(testDataDir, logger, logLevel);
       logger.info("Found " + testdata.testCases.size() + " test results.");
       for (Testcase tc : testdata.testCases) {
         if (tc.getLogEntries(LogLevel.ERROR).isEmpty() && TptResult.PASSED.equals(tc.getResult())) {
@@ -115,12 +118,15 @@ public final class Publish {
 
   /**
    * Collects recursively all test cases by searching for "testcase_information.xml" files in
-   * "rootdir". If a file could not be loaded, an error message will be printed.
+   * "rootdir". If a file could not be loaded, an error message will be printed. The files are
+   * searched and parsed on the machine the test data directory is located on.
    * 
    * @param testDataDir
    *          The directory where TPT test data should be searched
    * @param logger
    *          to display the information
+   * @param logLevel
+   *          the threshold for the severity of the log messages of the test cases
    * @return The list of parsed TPT test cases
    * 
    * @throws IOException
@@ -128,37 +134,27 @@ public final class Publish {
    * @throws InterruptedException
    *           If the job was interrupted
    */
-  public static TestCasesParseResult getTestcases(FilePath testDataDir, TptLogger logger)
+  public static TestCasesParseResult getTestcases(FilePath testDataDir, TptLogger logger,
+                                                  LogLevel logLevel)
       throws IOException, InterruptedException {
-    Collection<FilePath> files = new HashSet<>();
-    find(testDataDir, "testcase_information.xml", files);
-    FilePath xmlFile = new FilePath(testDataDir, "test_summary.xml");
+    FilePath xmlFile = new FilePath(testDataDir, TestSummary.FILE_NAME);
     if (!xmlFile.exists()) {
       logger.error("No \"test_summary.xml\" found.");
     }
-    TestCasesParseResult testSummaryTestcases = TestcaseSummaryParser.parseXml(xmlFile);
     // Wenn es kein testcase_information.xml gibt bedeutet nicht, dass es keine Tests gibt. (Es
     // ist wegen den GenerateOverviewReport bug)
     // Es muss dann trotzdem eine test_summary.xml geben bei der testDataDir
-    if (files.size() > 0) {
-      // we use the testcase_information.xml files, if available. But we need to add the global
-      // assesslet result from test summary xml.
-      testSummaryTestcases.testCases.clear();
-      for (FilePath f : files) {
-        try {
-          Testcase tc = TestcaseParser.parseXml(f);
-          testSummaryTestcases.testCases.add(tc);
-        } catch (IOException e) {
-          logger.error("File \"" + f + "\": " + e.getMessage() + "\n\r");
-        }
-      }
+    TestcaseCollector.CollectedTestcases collected =
+        testDataDir.act(new TestcaseCollector(logLevel));
+    for (String error : collected.errors) {
+      logger.error(error + "\n\r");
     }
-    return testSummaryTestcases;
+    return collected.parseResult;
   }
 
   /**
    * find all files in directory "root" with file name "pattern" and stores them in collection
-   * "files"
+   * "files". The directory is walked in a single call on the machine it is located on.
    * 
    * @param rootdir
    *          The directory that should be searched
@@ -174,16 +170,83 @@ public final class Publish {
    */
   public static void find(FilePath rootdir, String pattern, Collection<FilePath> files)
       throws IOException, InterruptedException {
-    if (rootdir.isDirectory()) {
-      List<FilePath> children = rootdir.list();
-      if (children != null) {
-        for (FilePath child : children) {
-          find(child, pattern, files);
-        }
-      }
-    } else if (rootdir.exists() && (!rootdir.isDirectory())
-        && rootdir.getName().equalsIgnoreCase(pattern)) {
-      files.add(rootdir);
+    files.addAll(find(rootdir, pattern));
+  }
+
+  /**
+   * Checks if the TPT test data in a directory is corrupt, which happens if the execution failed
+   * very early (GenerateOverviewReport bug). This is the case if there aren't any
+   * testcase_information.xml files and the test_summary.xml does not contain any
+   * TestcaseInformation element. The check runs on the machine the directory is located on, reads
+   * the test_summary.xml with bounded memory and stops at the first TestcaseInformation element or
+   * testcase_information.xml file.
+   * 
+   * @param testDataDir
+   *          The directory where TPT test data should be searched
+   * @return <code>true</code> if the test data is corrupt
+   * @throws IOException
+   *           If the test data could not be read
+   * @throws InterruptedException
+   *           If the job was interrupted
+   */
+  public static boolean isTestDataCorrupt(FilePath testDataDir)
+      throws IOException, InterruptedException {
+    return testDataDir.act(new CorruptTestDataCheck());
+  }
+
+  /**
+   * Checks if the TPT test data in a local directory is corrupt. Has to be used on the machine the
+   * directory is located on, see {@link #isTestDataCorrupt(FilePath)}.
+   * 
+   * @param testDataDir
+   *          The directory where TPT test data should be searched
+   * @return <code>true</code> if the test data is corrupt
+   * @throws IOException
+   *           If the test data could not be read
+   * @throws InterruptedException
+   *           If the job was interrupted
+   */
+  public static boolean isTestDataCorrupt(File testDataDir)
+      throws IOException, InterruptedException {
+    if (TestSummary.containsTestcaseInformation(new File(testDataDir, TestSummary.FILE_NAME))) {
+      return false;
+    }
+    return FindFilesCallable.find(testDataDir, TestcaseCollector.TESTCASE_INFORMATION_XML, 1)
+        .isEmpty();
+  }
+
+  /**
+   * find all files in directory "root" with file name "pattern". The directory is walked in a
+   * single call on the machine it is located on.
+   * 
+   * @param rootdir
+   *          The directory that should be searched
+   * @param pattern
+   *          The file name that has to be found.
+   * @return the found files, empty if "rootdir" does not exist
+   * 
+   * @throws IOException
+   *           If an error occured while searching the directory
+   * @throws InterruptedException
+   *           If the job was interrupted
+   */
+  public static List<FilePath> find(FilePath rootdir, String pattern)
+      throws IOException, InterruptedException {
+    List<FilePath> files = new ArrayList<>();
+    for (String path : rootdir.act(new FindFilesCallable(pattern))) {
+      files.add(new FilePath(rootdir.getChannel(), path));
+    }
+    return files;
+  }
+
+  private static class CorruptTestDataCheck extends MasterToSlaveFileCallable<Boolean> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Boolean invoke(File testDataDir, VirtualChannel channel)
+        throws IOException, InterruptedException {
+      return isTestDataCorrupt(testDataDir);
     }
   }
 }
@@ -20,46 +20,78 @@
  */
 package com.piketec.jenkins.plugins.tpt;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
-import hudson.EnvVars;
-import hudson.model.AbstractBuild;
 import hudson.model.Action;
 import hudson.model.Cause;
 import hudson.model.CauseAction;
+import hudson.model.Executor;
 import hudson.model.Job;
 import hudson.model.ParameterValue;
 import hudson.model.ParametersAction;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.StringParameterValue;
-import hudson.model.TaskListener;
 import hudson.model.Cause.UpstreamCause;
+import hudson.model.queue.QueueTaskFuture;
 import jenkins.model.ParameterizedJobMixIn;
+import jenkins.util.Timer;
 
+/**
+ * Schedules a worker job build and schedules it again if it fails until the number of tries is
+ * reached. No thread is blocked while waiting for a worker job build. Instead the state of all
+ * scheduled builds is polled by the shared Jenkins {@link Timer}, so the number of threads on the
+ * controller does not depend on the number of worker jobs.
+ */
 class RetryableJob {
 
+  /**
+   * The interval in milliseconds the state of the scheduled build is checked
+   */
+  private static final long POLL_INTERVAL = 1000;
+
   private Job workerJob;
 
   private int tries;
 
-  private Thread runner;
-
   private TptLogger logger;
 
-  private InterruptedException interruptedException = null;
+  private long timeout;
+
+  private Run< ? , ? > build;
+
+  private volatile boolean cancelled = false;
+
+  private volatile Run lastRun = null;
+
+  private QueueTaskFuture<Run> scheduled = null;
+
+  private long startTime;
+
+  private boolean timedOut;
 
-  private Run lastRun = null;
+  private long performTime;
+
+  private volatile long finishTime = 0;
+
+  private ScheduledFuture< ? > poller = null;
+
+  private final CompletableFuture<Result> completion = new CompletableFuture<>();
 
   /**
+   * Creates a retryable job without a timeout.
+   * 
    * @param tries
    *          , how many tries should be done pro build
    * @param logger
@@ -68,13 +100,29 @@ class RetryableJob {
    *          the job that might be retried
    */
   RetryableJob(int tries, TptLogger logger, Job workerJob) {
+    this(tries, logger, workerJob, 0);
+  }
+
+  /**
+   * @param tries
+   *          , how many tries should be done pro build
+   * @param logger
+   *          for prinitng messages
+   * @param workerJob
+   *          the job that might be retried
+   * @param timeout
+   *          the maximal duration in milliseconds of one try including the time in the queue. A
+   *          build that takes longer is aborted and counts as a failed try. A value less or equal
+   *          zero means no timeout.
+   */
+  RetryableJob(int tries, TptLogger logger, Job workerJob, long timeout) {
     if (tries < 1) {
       tries = 1;
     }
     this.tries = tries;
     this.logger = logger;
     this.workerJob = workerJob;
-
+    this.timeout = timeout;
   }
 
   /**
@@ -83,95 +131,83 @@ class RetryableJob {
    * @see schedule
    * 
    * @param build
-   *          to get the environment and for scheduling the build. It will be the same build
-   *          scheduled but with different testcases.
-   * @param listener
-   *          to get the environment and for scheduling the build.
+   *          for scheduling the build. It will be the same build scheduled but with different
+   *          testcases.
    */
-  void perform(final Run< ? , ? > build, final TaskListener listener) {
-    runner = new Thread(new Runnable() {
-
-      @Override
-      public void run() {
-        boolean success = false;
-        while (tries > 0 && !success) {
-          List<Future<Run>> futures = new ArrayList<>();
-          try {
-            if (build instanceof AbstractBuild< ? , ? >) {
-              EnvVars env = build.getEnvironment(listener);
-              env.overrideAll(((AbstractBuild< ? , ? >)build).getBuildVariables());
-            }
-            // To be able to enqueue the same build multiple times, they have to be made
-            // artificially different. We do that by adding a UUID. Everything else did not work.
-            ArrayList<Action> parameterActions = new ArrayList<>();
-            ArrayList<ParameterValue> parameterValues = new ArrayList<>();
-            parameterValues.add(new StringParameterValue(UUID.randomUUID().toString(),
-                UUID.randomUUID().toString()));
-            parameterActions.add(new ParametersAction(parameterValues));
-
-            final Future<Run> scheduled = schedule(build, workerJob,
-                ((ParameterizedJobMixIn.ParameterizedJob)workerJob).getQuietPeriod(),
-                parameterActions);
-            if (scheduled != null) {
-              futures.add(scheduled);
-            }
-
-            for (Future<Run> future : futures) {
-              Run run = future.get();
-              lastRun = run;
-              // retry if cancled or failed
-              Result result = run.getResult();
-              if (result != null) {
-                success = result.isBetterOrEqualTo(Result.UNSTABLE);
-              } else {
-                assert false : "Build should not be running since we used future.get()";
-                success = true;
-              }
-              if (future.isCancelled()) {
-                logger.error("Execution of test worker job was canceled.");
-                tries = 0;
-              }
-            }
-          } catch (InterruptedException e) {
-            interruptedException = e;
-            tries = 0;
-            for (Future<Run> future : futures) {
-              future.cancel(true);
-            }
-          } catch (IOException e) {
-            logger.error(e.getMessage());
-            // retry
-          } catch (ExecutionException e) {
-            logger.error(e.getMessage());
-            // retry
-          }
-          tries--;
-          if (!success && tries > 0) {
-            logger.info(
-                "Job execution failed. Scheduling job for retry. It is possible that two test cases"
-                    + " have the same name, if so please make the test cases names unique.");
-          }
-        }
-      }
-    });
-    runner.start();
+  void perform(final Run< ? , ? > build) {
+    this.build = build;
+    this.performTime = System.currentTimeMillis();
+    Timer.get().execute(this::scheduleTry);
+  }
+
+  /**
+   * @return a future that is completed with the result of the last try when no more tries will be
+   *         done. The result is <code>null</code> if no build could be executed.
+   */
+  CompletableFuture<Result> getCompletion() {
+    return completion;
+  }
+
+  /**
+   * @return the job that is scheduled
+   */
+  Job getWorkerJob() {
+    return workerJob;
+  }
+
+  /**
+   * @return <code>true</code> if no more tries will be done
+   */
+  boolean isDone() {
+    return completion.isDone();
+  }
+
+  /**
+   * @return <code>true</code> if the job was canceled
+   */
+  boolean isCancelled() {
+    return cancelled;
   }
 
   /**
-   * joins the threads
+   * @return the time in milliseconds since the job was performed until no more tries were done or
+   *         until now if the job is not done yet
+   */
+  long getRuntime() {
+    long end = finishTime;
+    return (end == 0 ? System.currentTimeMillis() : end) - performTime;
+  }
+
+  /**
+   * Waits until no more tries will be done
+   * 
+   * @throws InterruptedException
+   *           If the thread was interrupted or the job was canceled
    */
   void join() throws InterruptedException {
-    runner.join();
-    if (interruptedException != null) {
-      throw interruptedException;
+    try {
+      completion.get();
+    } catch (ExecutionException e) {
+      logger.error(e.getMessage());
+    }
+    if (cancelled) {
+      throw new InterruptedException("Execution of test worker job was canceled.");
     }
   }
 
   /**
-   * interrupt the thread
+   * Cancels the job. A queued build is removed from the queue and a running build is aborted. No
+   * more tries will be done.
    */
-  void cancel() {
-    runner.interrupt();
+  synchronized void cancel() {
+    if (cancelled || completion.isDone()) {
+      return;
+    }
+    cancelled = true;
+    abortCurrentTry();
+    if (scheduled == null) {
+      finish();
+    }
   }
 
   /**
@@ -186,6 +222,132 @@ class RetryableJob {
     return runToGetResultFrom == null ? null : runToGetResultFrom.getResult();
   }
 
+  /**
+   * @return the build of the current try if it has already started, otherwise the build of the
+   *         last finished try or <code>null</code> if no build has started yet
+   */
+  @CheckForNull
+  synchronized Run getCurrentRun() {
+    QueueTaskFuture<Run> current = scheduled;
+    if (current != null && current.getStartCondition().isDone()) {
+      try {
+        return current.getStartCondition().get();
+      } catch (InterruptedException | ExecutionException | CancellationException e) {
+        // build did not start
+      }
+    }
+    return lastRun;
+  }
+
+  private synchronized void scheduleTry() {
+    if (cancelled) {
+      finish();
+      return;
+    }
+    // To be able to enqueue the same build multiple times, they have to be made
+    // artificially different. We do that by adding a UUID. Everything else did not work.
+    ArrayList<Action> parameterActions = new ArrayList<>();
+    ArrayList<ParameterValue> parameterValues = new ArrayList<>();
+    parameterValues.add(
+        new StringParameterValue(UUID.randomUUID().toString(), UUID.randomUUID().toString()));
+    parameterActions.add(new ParametersAction(parameterValues));
+    parameterActions.add(new InvisibleActionDistributingJob(build));
+
+    scheduled = schedule(build, workerJob,
+        ((ParameterizedJobMixIn.ParameterizedJob)workerJob).getQuietPeriod(), parameterActions);
+    if (scheduled == null) {
+      logger.error("Unable to schedule worker job \"" + workerJob.getName() + "\".");
+      tryFinished(false);
+      return;
+    }
+    startTime = System.currentTimeMillis();
+    timedOut = false;
+    poller =
+        Timer.get().scheduleWithFixedDelay(this::poll, POLL_INTERVAL, POLL_INTERVAL,
+            TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void poll() {
+    if (scheduled == null) {
+      return;
+    }
+    if (!scheduled.isDone()) {
+      if (!cancelled && !timedOut && timeout > 0
+          && System.currentTimeMillis() - startTime > timeout) {
+        timedOut = true;
+        logger.error("Worker job did not finish within " + (timeout / 1000) + " s. Aborting it.");
+        abortCurrentTry();
+      }
+      return;
+    }
+    poller.cancel(false);
+    Future<Run> done = scheduled;
+    scheduled = null;
+    boolean success = false;
+    try {
+      Run run = done.get();
+      lastRun = run;
+      // retry if cancled or failed
+      Result result = run.getResult();
+      success = result == null || result.isBetterOrEqualTo(Result.UNSTABLE);
+    } catch (CancellationException e) {
+      // a build removed from the queue because of the timeout is retried
+      if (!timedOut) {
+        logger.error("Execution of test worker job was canceled.");
+        tries = 0;
+      }
+    } catch (InterruptedException e) {
+      // cannot happen, the future is done
+      tries = 0;
+    } catch (ExecutionException e) {
+      logger.error(e.getMessage());
+      // retry
+    }
+    tryFinished(success);
+  }
+
+  private void tryFinished(boolean success) {
+    tries--;
+    if (!success && tries > 0 && !cancelled) {
+      logger.info(
+          "Job execution failed. Scheduling job for retry. It is possible that two test cases"
+              + " have the same name, if so please make the test cases names unique.");
+      Timer.get().execute(this::scheduleTry);
+    } else {
+      finish();
+    }
+  }
+
+  private void finish() {
+    if (poller != null) {
+      poller.cancel(false);
+    }
+    if (finishTime == 0) {
+      finishTime = System.currentTimeMillis();
+    }
+    completion.complete(getResult());
+  }
+
+  private void abortCurrentTry() {
+    QueueTaskFuture<Run> current = scheduled;
+    if (current == null) {
+      return;
+    }
+    // removes the build from the queue if it has not started yet
+    current.cancel(true);
+    Future<Run> startCondition = current.getStartCondition();
+    if (startCondition.isDone()) {
+      try {
+        Executor executor = startCondition.get().getExecutor();
+        if (executor != null) {
+          executor.interrupt(Result.ABORTED);
+        }
+      } catch (InterruptedException | ExecutionException | CancellationException e) {
+        // build did not start
+      }
+    }
+  }
+
   /**
    * Schedules a build throgh ParameterizedJobMixIn.ParameterizedJob
    * 
@@ -201,8 +363,8 @@ class RetryableJob {
    */
   // from prametrized trigger plugin BuildTriggerConfig
   @SuppressWarnings("unchecked")
-  protected Future<Run> schedule(@Nonnull Run< ? , ? > build, @Nonnull final Job project,
-                                 int quietPeriod, @Nonnull List<Action> list) {
+  protected QueueTaskFuture<Run> schedule(@Nonnull Run< ? , ? > build, @Nonnull final Job project,
+                                          int quietPeriod, @Nonnull List<Action> list) {
     Cause cause = new UpstreamCause(build);
     List<Action> queueActions = new ArrayList<>(list);
     queueActions.add(new CauseAction(cause));
@@ -216,7 +378,7 @@ class RetryableJob {
           return project;
         }
       };
-      return (Future<Run>)parameterizedJobMixIn.scheduleBuild2(quietPeriod,
+      return (QueueTaskFuture<Run>)parameterizedJobMixIn.scheduleBuild2(quietPeriod,
           queueActions.toArray(new Action[queueActions.size()]));
     }
     return null;
@@ -0,0 +1,393 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.piketec.jenkins.plugins.tpt.TptLog.LogLevel;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Splits the test cases of a distributing job into work packages for the worker jobs. The test
+ * cases are assigned by their execution duration of the previous run (longest processing time
+ * first), so that all worker jobs finish at roughly the same time.
+ */
+class ShardPlanner {
+
+  /**
+   * The tolerance in milliseconds when comparing file modification times
+   */
+  private static final long MODIFICATION_TIME_TOLERANCE = 2000;
+
+  private ShardPlanner() {
+  }
+
+  /**
+   * Reads the execution durations of the test results found in the given test data directory. The
+   * directory is expected to still contain the results of the previous build. If a test case was
+   * executed on several platforms the durations are summed up. The result files are read on the
+   * machine the directory is located on, only the durations are transferred.
+   *
+   * @param testDataDir
+   *          The test data directory of the previous run
+   * @param logger
+   *          to display the information
+   * @return map from test case name to execution duration in milliseconds
+   * @throws InterruptedException
+   *           If the job was interrupted
+   */
+  static Map<String, Long> readDurations(FilePath testDataDir, TptLogger logger)
+      throws InterruptedException {
+    try {
+      return testDataDir.act(new ReadDurationsCallable());
+    } catch (IOException e) {
+      logger.warn("Could not read test durations of previous run: " + e.getMessage());
+      return new HashMap<>();
+    }
+  }
+
+  /**
+   * @param dir
+   *          A directory on the machine to get the time of
+   * @return the current time in milliseconds of the machine the directory is located on, used to
+   *         compare it with the modification time of files on that machine
+   * @throws IOException
+   *           If the machine could not be reached
+   * @throws InterruptedException
+   *           If the job was interrupted
+   */
+  static long getCurrentTime(FilePath dir) throws IOException, InterruptedException {
+    return dir.act(new CurrentTimeCallable());
+  }
+
+  /**
+   * Chooses the number of worker jobs with the smallest expected makespan. Every worker job first
+   * spends the given overhead, e.g. for waiting in the queue and starting TPT, and then executes
+   * its work package. So the expected makespan of <code>n</code> worker jobs is the overhead plus
+   * the duration of the longest of the <code>n</code> work packages created by
+   * {@link #partitionByDuration(Collection, Map, long, int)}. Of several worker counts with the same
+   * makespan the smallest one is chosen, because every worker job occupies an executor for its
+   * overhead. Worker jobs beyond the number of idle executors would have to wait for a free
+   * executor and are never chosen.
+   *
+   * @param testCases
+   *          The test cases to execute
+   * @param durations
+   *          The known durations in milliseconds by test case name
+   * @param defaultDuration
+   *          The estimated duration in milliseconds for test cases without history
+   * @param idleExecutors
+   *          The number of idle executors available for the worker jobs
+   * @param overhead
+   *          The time in milliseconds a worker job needs in addition to executing its test cases
+   * @return the number of worker jobs, at least one
+   */
+  static int planWorkerCount(Collection<String> testCases, Map<String, Long> durations,
+                             long defaultDuration, int idleExecutors, long overhead) {
+    int maxCount = Math.max(1, Math.min(testCases.size(), idleExecutors));
+    int count = 1;
+    long makespan = Long.MAX_VALUE;
+    for (int n = 1; n <= maxCount; n++) {
+      long longestWorkPackage = 0;
+      for (List<String> workPackage : partitionByDuration(testCases, durations, defaultDuration,
+          n)) {
+        long workPackageDuration = 0;
+        for (String testCase : workPackage) {
+          workPackageDuration += getDuration(testCase, durations, defaultDuration);
+        }
+        longestWorkPackage = Math.max(longestWorkPackage, workPackageDuration);
+      }
+      if (overhead + longestWorkPackage < makespan) {
+        count = n;
+        makespan = overhead + longestWorkPackage;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Reads the results of the given test cases found in the given test data directory. If a test
+   * case was executed on several platforms the worst result is used. The result files are read on
+   * the machine the directory is located on, only the results are transferred. Result files that
+   * are older than the given time are not parsed at all.
+   *
+   * @param testDataDir
+   *          The test data directory the test cases were executed in
+   * @param logger
+   *          to display the information
+   * @param testCases
+   *          The test cases to read the results of
+   * @param modifiedSince
+   *          The time on the machine of the directory the execution of the test cases started, see
+   *          {@link #getCurrentTime(FilePath)}
+   * @return map from test case name to result or <code>null</code> if the directory could not be
+   *         read
+   * @throws InterruptedException
+   *           If the job was interrupted
+   */
+  static Map<String, TptResult> readResults(FilePath testDataDir, TptLogger logger,
+                                            Collection<String> testCases, long modifiedSince)
+      throws InterruptedException {
+    try {
+      if (!testDataDir.exists()) {
+        return null;
+      }
+      return testDataDir.act(new ReadResultsCallable(testCases, modifiedSince));
+    } catch (IOException e) {
+      logger.warn("Could not read test results: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Determines the test cases of a failed work package that have to be executed again. These are
+   * the test cases without a result or with at least one result that is an execution error.
+   *
+   * @param results
+   *          The results read by {@link #readResults(FilePath, TptLogger, Collection, long)}
+   * @param testCases
+   *          The test cases of the work package
+   * @return the test cases to execute again in the order of the work package or an empty list if
+   *         the results could not be read
+   */
+  static List<String> getTestCasesToRetry(Map<String, TptResult> results,
+                                          List<String> testCases) {
+    if (results == null) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>();
+    for (String testCase : testCases) {
+      TptResult testCaseResult = results.get(testCase);
+      if (testCaseResult == null || testCaseResult == TptResult.EXECUTION_ERROR) {
+        result.add(testCase);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param duration
+   *          The "ExecutionDuration" attribute of a testcase_information.xml
+   * @return the duration in milliseconds or -1 if the value could not be parsed
+   */
+  static long parseDuration(String duration) {
+    if (duration == null) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(duration.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Assigns the test cases to <code>shardCount</code> work packages using longest processing time
+   * first bin packing: The test cases are sorted by descending duration and every test case is put
+   * into the work package with the currently smallest total duration.
+   *
+   * @param testCases
+   *          The test cases to distribute
+   * @param durations
+   *          The known durations in milliseconds by test case name
+   * @param defaultDuration
+   *          The estimated duration in milliseconds for test cases without history
+   * @param shardCount
+   *          The number of work packages to create
+   * @return the work packages, empty packages are omitted
+   */
+  static ArrayList<List<String>> partitionByDuration(Collection<String> testCases,
+                                                    Map<String, Long> durations,
+                                                    long defaultDuration, int shardCount) {
+    List<String> sorted = sortByDuration(testCases, durations, defaultDuration);
+    // the work package with the smallest total duration is always at the head of the queue
+    PriorityQueue<Shard> shards = new PriorityQueue<>((a, b) -> {
+      int cmp = Long.compare(a.totalDuration, b.totalDuration);
+      return cmp != 0 ? cmp : Integer.compare(a.index, b.index);
+    });
+    for (int i = 0; i < Math.max(1, shardCount); i++) {
+      shards.add(new Shard(i));
+    }
+    for (String testCase : sorted) {
+      Shard lightest = shards.poll();
+      lightest.testCases.add(testCase);
+      lightest.totalDuration += getDuration(testCase, durations, defaultDuration);
+      shards.add(lightest);
+    }
+    List<Shard> ordered = new ArrayList<>(shards);
+    Collections.sort(ordered, (a, b) -> Integer.compare(a.index, b.index));
+    ArrayList<List<String>> result = new ArrayList<>();
+    for (Shard shard : ordered) {
+      if (!shard.testCases.isEmpty()) {
+        result.add(shard.testCases);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param testCases
+   *          The test cases to sort
+   * @param durations
+   *          The known durations in milliseconds by test case name
+   * @param defaultDuration
+   *          The estimated duration in milliseconds for test cases without history
+   * @return the test cases sorted by descending duration
+   */
+  static List<String> sortByDuration(Collection<String> testCases, Map<String, Long> durations,
+                                     long defaultDuration) {
+    List<String> sorted = new ArrayList<>(testCases);
+    // sort by name first to get a deterministic order for test cases with equal durations
+    Collections.sort(sorted);
+    Collections.sort(sorted,
+        (a, b) -> Long.compare(getDuration(b, durations, defaultDuration),
+            getDuration(a, durations, defaultDuration)));
+    return sorted;
+  }
+
+  private static long getDuration(String testCase, Map<String, Long> durations,
+                                  long defaultDuration) {
+    Long duration = durations.get(testCase);
+    return duration == null ? defaultDuration : duration;
+  }
+
+  /**
+   * Parses the testcase_information.xml files of a test data directory on the machine the directory
+   * is located on. Files that cannot be parsed are ignored, they are handled like missing results.
+   */
+  private abstract static class TestcaseInformationCallable<T>
+      extends MasterToSlaveFileCallable<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long modifiedSince;
+
+    /**
+     * @param modifiedSince
+     *          files last modified before this time are skipped, 0 to parse all files
+     */
+    TestcaseInformationCallable(long modifiedSince) {
+      this.modifiedSince = modifiedSince;
+    }
+
+    @Override
+    public T invoke(File testDataDir, VirtualChannel channel)
+        throws IOException, InterruptedException {
+      List<File> files =
+          FindFilesCallable.find(testDataDir, TestcaseCollector.TESTCASE_INFORMATION_XML);
+      if (modifiedSince > 0) {
+        // some file systems only store the modification time in seconds or even two seconds
+        files.removeIf(f -> f.lastModified() < modifiedSince - MODIFICATION_TIME_TOLERANCE);
+      }
+      Collections.sort(files);
+      return collect(TestcaseCollector.parse(files, LogLevel.NONE, new ArrayList<>()));
+    }
+
+    abstract T collect(List<Testcase> testCases);
+  }
+
+  private static class ReadDurationsCallable
+      extends TestcaseInformationCallable<HashMap<String, Long>> {
+
+    private static final long serialVersionUID = 1L;
+
+    ReadDurationsCallable() {
+      super(0);
+    }
+
+    @Override
+    HashMap<String, Long> collect(List<Testcase> testCases) {
+      HashMap<String, Long> durations = new HashMap<>();
+      for (Testcase tc : testCases) {
+        long duration = parseDuration(tc.getExecDuration());
+        if (duration >= 0) {
+          durations.merge(tc.getName(), duration, Long::sum);
+        }
+      }
+      return durations;
+    }
+  }
+
+  private static class ReadResultsCallable
+      extends TestcaseInformationCallable<HashMap<String, TptResult>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HashSet<String> testCaseNames;
+
+    ReadResultsCallable(Collection<String> testCaseNames, long modifiedSince) {
+      super(modifiedSince);
+      this.testCaseNames = new HashSet<>(testCaseNames);
+    }
+
+    @Override
+    HashMap<String, TptResult> collect(List<Testcase> testCases) {
+      HashMap<String, TptResult> results = new HashMap<>();
+      for (Testcase tc : testCases) {
+        if (!testCaseNames.contains(tc.getName())) {
+          continue;
+        }
+        results.put(tc.getName(), results.containsKey(tc.getName())
+            ? TptResult.worstCase(results.get(tc.getName()), tc.getResult()) : tc.getResult());
+      }
+      return results;
+    }
+  }
+
+  private static class CurrentTimeCallable extends MasterToSlaveFileCallable<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Long invoke(File f, VirtualChannel channel) {
+      return System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * A work package under construction
+   */
+  private static class Shard {
+
+    private final int index;
+
+    private final List<String> testCases = new ArrayList<>();
+
+    private long totalDuration = 0;
+
+    Shard(int index) {
+      this.index = index;
+    }
+  }
+
+}
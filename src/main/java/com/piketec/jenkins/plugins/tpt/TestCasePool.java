@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The test cases of one execution configuration of a distributing job that are still to be
+ * executed. Worker jobs running in dynamic mode claim small batches from this pool until it is
+ * empty, so faster agents execute more test cases than slower ones. Test cases of failed batches
+ * are put back at the end of the pool until they failed as often as a worker job is tried.
+ */
+public class TestCasePool {
+
+  private final LinkedList<String> pending;
+
+  private final int maxAttempts;
+
+  private final Map<String, Integer> failedAttempts = new HashMap<>();
+
+  private final List<String> givenUp = new ArrayList<>();
+
+  /**
+   * @param testCases
+   *          the test cases to execute. They are handed out in the given order.
+   * @param maxAttempts
+   *          how often a test case may fail before it is not handed out anymore, at least once
+   */
+  public TestCasePool(Collection<String> testCases, int maxAttempts) {
+    this.pending = new LinkedList<>(testCases);
+    this.maxAttempts = Math.max(1, maxAttempts);
+  }
+
+  /**
+   * Removes up to <code>batchSize</code> test cases from the pool.
+   * 
+   * @param batchSize
+   *          the maximal number of test cases to claim, at least one test case is claimed
+   * @return the claimed test cases, an empty list if the pool is empty
+   */
+  public synchronized List<String> claim(int batchSize) {
+    List<String> batch = new ArrayList<>();
+    while (!pending.isEmpty() && batch.size() < Math.max(1, batchSize)) {
+      batch.add(pending.poll());
+    }
+    return batch;
+  }
+
+  /**
+   * Puts test cases of a failed batch back into the pool. They are handed out after the test cases
+   * that did not fail yet, so a test case that always fails does not stop every worker first. A
+   * test case that failed as often as allowed is not put back.
+   * 
+   * @param testCases
+   *          the test cases to put back
+   * @return the test cases that failed too often and are not executed anymore
+   */
+  public synchronized List<String> giveBack(List<String> testCases) {
+    List<String> failedTooOften = new ArrayList<>();
+    for (String testCase : testCases) {
+      int attempts = failedAttempts.merge(testCase, 1, Integer::sum);
+      if (attempts >= maxAttempts) {
+        failedTooOften.add(testCase);
+      } else {
+        pending.add(testCase);
+      }
+    }
+    givenUp.addAll(failedTooOften);
+    return failedTooOften;
+  }
+
+  /**
+   * @return the number of test cases that are not claimed yet
+   */
+  public synchronized int size() {
+    return pending.size();
+  }
+
+  /**
+   * @return a copy of the test cases that are not claimed yet
+   */
+  public synchronized List<String> getPendingTestCases() {
+    return new ArrayList<>(pending);
+  }
+
+  /**
+   * @return a copy of the test cases that failed too often and are not handed out anymore
+   */
+  public synchronized List<String> getGivenUpTestCases() {
+    return new ArrayList<>(givenUp);
+  }
+
+}
@@ -1,8 +1,11 @@
 package com.piketec.jenkins.plugins.tpt;
 
+import java.io.Serializable;
 import java.util.List;
 
-class TestCasesParseResult {
+class TestCasesParseResult implements Serializable {
+
+  private static final long serialVersionUID = 1L;
 
   final List<Testcase> testCases;
 
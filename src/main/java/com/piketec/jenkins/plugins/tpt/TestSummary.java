@@ -0,0 +1,346 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The content of a TPT test_summary.xml that is needed by the JUnit export and the report
+ * publisher. The file is parsed once in a single streaming pass on the machine it is located on.
+ * The parsed summaries are cached in the JVM of that machine as long as the file does not change,
+ * so the JUnit export and the report publisher of the same build share one parse. The cache is
+ * bounded by the total size of the cached files.
+ */
+public class TestSummary {
+
+  /**
+   * The name of the file in the test data directory
+   */
+  public static final String FILE_NAME = "test_summary.xml";
+
+  /**
+   * The maximal total size in bytes of the files whose summaries are cached. A summary is smaller
+   * than its file, so this bounds the memory used by the cache.
+   */
+  private static final long MAX_CACHED_BYTES = 32L * 1024 * 1024;
+
+  private static final String TESTCASE_INFORMATION = "TestcaseInformation";
+
+  private static final int SEARCH_BUFFER_SIZE = 64 * 1024;
+
+  // key is the absolute path of the file, least recently used entries are dropped first
+  private static final LinkedHashMap<String, CachedSummary> CACHE =
+      new LinkedHashMap<>(16, 0.75f, true);
+
+  private static long cachedBytes = 0;
+
+  private String executionConfigName;
+
+  private final List<TestcaseEntry> testCases = new ArrayList<>();
+
+  private final List<ResultEntry> results = new ArrayList<>();
+
+  private final List<String> globalAssessletResults = new ArrayList<>();
+
+  private boolean containsTestcaseInformation = false;
+
+  private TestSummary() {
+  }
+
+  /**
+   * Reads a local test_summary.xml. Has to be used on the machine the file is located on. A cached
+   * summary is used if the file did not change since it was parsed.
+   * 
+   * @param xmlFile
+   *          test_summary.xml
+   * @return the content of the test_summary.xml
+   * @throws IOException
+   *           if the file does not exist, cannot be read or has a wrong format
+   */
+  public static TestSummary read(File xmlFile) throws IOException {
+    long lastModified = xmlFile.lastModified();
+    long length = xmlFile.length();
+    TestSummary summary = getCached(xmlFile, lastModified, length);
+    if (summary != null) {
+      return summary;
+    }
+    try (InputStream inputStream = Files.newInputStream(xmlFile.toPath())) {
+      summary = parse(inputStream);
+    }
+    put(xmlFile.getAbsolutePath(), new CachedSummary(summary, lastModified, length));
+    return summary;
+  }
+
+  private static void put(String key, CachedSummary cached) {
+    synchronized (CACHE) {
+      CachedSummary old = CACHE.remove(key);
+      if (old != null) {
+        cachedBytes -= old.length;
+      }
+      if (cached.length > MAX_CACHED_BYTES) {
+        return;
+      }
+      CACHE.put(key, cached);
+      cachedBytes += cached.length;
+      Iterator<CachedSummary> eldest = CACHE.values().iterator();
+      while (cachedBytes > MAX_CACHED_BYTES) {
+        cachedBytes -= eldest.next().length;
+        eldest.remove();
+      }
+    }
+  }
+
+  private static TestSummary getCached(File xmlFile, long lastModified, long length) {
+    synchronized (CACHE) {
+      CachedSummary cached = CACHE.get(xmlFile.getAbsolutePath());
+      if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+        return cached.summary;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Checks if a local test_summary.xml contains the text "TestcaseInformation" anywhere. The file
+   * is not parsed, so a malformed file is checked as well. It is read in chunks that overlap by the
+   * length of the text, so the memory is bounded and a text spanning two chunks is found.
+   * 
+   * @param xmlFile
+   *          test_summary.xml
+   * @return <code>true</code> if the file contains the text, <code>false</code> if not or if the
+   *         file does not exist
+   * @throws IOException
+   *           if the file cannot be read
+   */
+  static boolean containsTestcaseInformation(File xmlFile) throws IOException {
+    if (!xmlFile.isFile()) {
+      return false;
+    }
+    // ASCII text is encoded the same in UTF-8 and never part of a multi-byte character
+    byte[] text = TESTCASE_INFORMATION.getBytes(StandardCharsets.UTF_8);
+    byte[] buffer = new byte[SEARCH_BUFFER_SIZE];
+    try (InputStream inputStream = Files.newInputStream(xmlFile.toPath())) {
+      int length = 0;
+      int read;
+      while ((read = inputStream.read(buffer, length, buffer.length - length)) >= 0) {
+        length += read;
+        for (int i = 0; i + text.length <= length; i++) {
+          if (startsWith(buffer, i, text)) {
+            return true;
+          }
+        }
+        // keep the end that may be the beginning of the text
+        int keep = Math.min(length, text.length - 1);
+        System.arraycopy(buffer, length - keep, buffer, 0, keep);
+        length = keep;
+      }
+      return false;
+    }
+  }
+
+  private static boolean startsWith(byte[] buffer, int offset, byte[] prefix) {
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer[offset + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses a test_summary.xml without caching.
+   * 
+   * @param inputStream
+   *          the content of a test_summary.xml
+   * @return the content of the test_summary.xml
+   * @throws IOException
+   *           if the stream cannot be read or has a wrong format
+   */
+  static TestSummary parse(InputStream inputStream) throws IOException {
+    Handler handler = new Handler();
+    try {
+      SAXParserFactory.newInstance().newSAXParser().parse(inputStream, handler);
+      return handler.summary;
+    } catch (ParserConfigurationException e) {
+      throw new IOException("XML parser config error: " + e.getMessage());
+    } catch (SAXException e) {
+      throw new IOException("SAX error: " + e.getMessage());
+    } catch (IOException e) {
+      throw new IOException("I/O error: " + e.getMessage());
+    }
+  }
+
+  /**
+   * @return the name of the execution configuration from the header
+   */
+  public String getExecutionConfigName() {
+    return executionConfigName;
+  }
+
+  /**
+   * @return the test cases of the execution in the order of the file
+   */
+  public List<TestcaseEntry> getTestCases() {
+    return Collections.unmodifiableList(testCases);
+  }
+
+  /**
+   * @return the results of the executed test cases in the order of the file
+   */
+  public List<ResultEntry> getResults() {
+    return Collections.unmodifiableList(results);
+  }
+
+  /**
+   * @return the results of the global assesslets that have a result
+   */
+  public List<String> getGlobalAssessletResults() {
+    return Collections.unmodifiableList(globalAssessletResults);
+  }
+
+  /**
+   * @return <code>true</code> if the file contains at least one TestcaseInformation element. If
+   *         not, the execution failed very early.
+   */
+  public boolean hasTestcaseInformation() {
+    return containsTestcaseInformation;
+  }
+
+  /**
+   * A test case of the execution
+   */
+  public static class TestcaseEntry {
+
+    private final String id;
+
+    private final String name;
+
+    TestcaseEntry(String id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  /**
+   * The result of an executed test case on a platform
+   */
+  public static class ResultEntry {
+
+    private final String testcaseId;
+
+    private final String result;
+
+    private final String executionDate;
+
+    private final String reportFile;
+
+    ResultEntry(String testcaseId, String result, String executionDate, String reportFile) {
+      this.testcaseId = testcaseId;
+      this.result = result;
+      this.executionDate = executionDate;
+      this.reportFile = reportFile;
+    }
+
+    public String getTestcaseId() {
+      return testcaseId;
+    }
+
+    public String getResult() {
+      return result;
+    }
+
+    public String getExecutionDate() {
+      return executionDate;
+    }
+
+    public String getReportFile() {
+      return reportFile;
+    }
+  }
+
+  private static class Handler extends DefaultHandler {
+
+    private final TestSummary summary = new TestSummary();
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+        throws SAXException {
+      if (qName.equals("Header")) {
+        summary.executionConfigName = attributes.getValue("ExecutionConfig");
+      } else if (qName.equalsIgnoreCase("Testcase")) {
+        summary.testCases
+            .add(new TestcaseEntry(attributes.getValue("Id"), attributes.getValue("Name")));
+      } else if (qName.equalsIgnoreCase(TESTCASE_INFORMATION)) {
+        summary.containsTestcaseInformation = true;
+        summary.results.add(new ResultEntry(attributes.getValue("Testcase"),
+            attributes.getValue("Result"), attributes.getValue("ExecutionDate"),
+            attributes.getValue("ReportFile")));
+      } else if (qName.equalsIgnoreCase("GlobAssesslet")) {
+        // some global assesslets simply have no result (e.g. Regquirements Coverage), thats not
+        // even "inconclusive"
+        String resultString = attributes.getValue("Result");
+        if (resultString != null) {
+          summary.globalAssessletResults.add(resultString);
+        }
+      }
+    }
+  }
+
+  private static class CachedSummary {
+
+    private final TestSummary summary;
+
+    private final long lastModified;
+
+    private final long length;
+
+    CachedSummary(TestSummary summary, long lastModified, long length) {
+      this.summary = summary;
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+  }
+
+}
@@ -20,6 +20,7 @@
  */
 package com.piketec.jenkins.plugins.tpt;
 
+import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
 
@@ -31,7 +32,9 @@ import com.piketec.jenkins.plugins.tpt.TptLog.LogLevel;
  * 
  * @author jkuhnert, PikeTec GmbH
  */
-public class Testcase {
+public class Testcase implements Serializable {
+
+  private static final long serialVersionUID = 1L;
 
   private String executionConfigName;
 
@@ -179,6 +182,17 @@ public class Testcase {
     return log.getLog(level);
   }
 
+  /**
+   * Drops all log entries that are less severe than the given level. Used to keep the test case
+   * small before it is sent over the remoting channel.
+   * 
+   * @param level
+   *          the threshold for the severity of the log entries to keep
+   */
+  void retainLogEntries(LogLevel level) {
+    log.retain(level);
+  }
+
   /**
    * @return the testcase name concatinated with the id
    */
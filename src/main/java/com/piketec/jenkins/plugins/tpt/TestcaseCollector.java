@@ -0,0 +1,217 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.piketec.jenkins.plugins.tpt.TptLog.LogLevel;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Searches and parses the TPT test results of a test data directory on the machine the directory
+ * is located on. Only the parsed test cases are sent back, so the result files themselves never
+ * cross the remoting channel. Log entries less severe than the requested log level are dropped
+ * before sending, errors are always kept because they decide if a test case is published as
+ * failed.
+ */
+class TestcaseCollector extends MasterToSlaveFileCallable<TestcaseCollector.CollectedTestcases> {
+
+  private static final long serialVersionUID = 1L;
+
+  static final String TESTCASE_INFORMATION_XML = "testcase_information.xml";
+
+  /**
+   * The maximal number of threads used to parse the result files
+   */
+  static final int MAX_PARSER_THREADS = 16;
+
+  /**
+   * Number of files a parsing task parses itself instead of splitting them up further
+   */
+  private static final int FILES_PER_TASK = 32;
+
+  private final LogLevel logLevel;
+
+  /**
+   * @param logLevel
+   *          the threshold for the severity of the log entries that should be transferred
+   */
+  TestcaseCollector(LogLevel logLevel) {
+    this.logLevel = logLevel.ordinal() < LogLevel.ERROR.ordinal() ? LogLevel.ERROR : logLevel;
+  }
+
+  @Override
+  public CollectedTestcases invoke(File testDataDir, VirtualChannel channel)
+      throws IOException, InterruptedException {
+    List<File> files = FindFilesCallable.find(testDataDir, TESTCASE_INFORMATION_XML);
+    // the order of the walk depends on the file system
+    Collections.sort(files);
+    TestCasesParseResult testSummaryTestcases =
+        TestcaseSummaryParser.parseXml(new File(testDataDir, TestSummary.FILE_NAME));
+    List<String> errors = new ArrayList<>();
+    // we use the testcase_information.xml files, if available. But we need to add the global
+    // assesslet result from test summary xml.
+    if (files.size() > 0) {
+      testSummaryTestcases.testCases.clear();
+      testSummaryTestcases.testCases.addAll(parse(files, logLevel, errors));
+    }
+    return new CollectedTestcases(testSummaryTestcases, errors);
+  }
+
+  /**
+   * Parses local testcase_information.xml files in parallel. Has to be used on the machine the
+   * files are located on.
+   * 
+   * @param files
+   *          The files to parse
+   * @param logLevel
+   *          the threshold for the severity of the log entries to keep
+   * @param errors
+   *          The list to add the error messages of the files that could not be parsed to
+   * @return the parsed test cases in the order of the files
+   * @throws IOException
+   *           If the parsing failed unexpectedly
+   * @throws InterruptedException
+   *           If the job was interrupted
+   */
+  static List<Testcase> parse(List<File> files, LogLevel logLevel, List<String> errors)
+      throws IOException, InterruptedException {
+    Testcase[] testCases = new Testcase[files.size()];
+    String[] fileErrors = new String[files.size()];
+    parse(files, logLevel, testCases, fileErrors);
+    // keep the order of the files, regardless of which thread parsed which file
+    List<Testcase> result = new ArrayList<>();
+    for (int i = 0; i < testCases.length; i++) {
+      if (testCases[i] != null) {
+        result.add(testCases[i]);
+      } else {
+        errors.add(fileErrors[i]);
+      }
+    }
+    return result;
+  }
+
+  private static void parse(List<File> files, LogLevel logLevel, Testcase[] testCases,
+                            String[] errors)
+      throws IOException, InterruptedException {
+    int parallelism = Math.min(Math.min(Runtime.getRuntime().availableProcessors(),
+        MAX_PARSER_THREADS), (files.size() + FILES_PER_TASK - 1) / FILES_PER_TASK);
+    ParseTask task = new ParseTask(files, logLevel, testCases, errors, 0, files.size());
+    if (parallelism <= 1) {
+      task.parseFiles();
+      return;
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.submit(task).get();
+    } catch (ExecutionException e) {
+      throw new IOException("Parsing the test results failed: " + e.getCause().getMessage(),
+          e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Parses a range of the result files. The result of the file with index <code>i</code> is stored
+   * at index <code>i</code> of either the test cases or the errors. So an unreadable file only
+   * affects its own result.
+   */
+  private static class ParseTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<File> files;
+
+    private final LogLevel logLevel;
+
+    private final Testcase[] testCases;
+
+    private final String[] errors;
+
+    private final int from;
+
+    private final int to;
+
+    ParseTask(List<File> files, LogLevel logLevel, Testcase[] testCases, String[] errors, int from,
+              int to) {
+      this.files = files;
+      this.logLevel = logLevel;
+      this.testCases = testCases;
+      this.errors = errors;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > FILES_PER_TASK) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new ParseTask(files, logLevel, testCases, errors, from, middle),
+            new ParseTask(files, logLevel, testCases, errors, middle, to));
+      } else {
+        parseFiles();
+      }
+    }
+
+    void parseFiles() {
+      for (int i = from; i < to; i++) {
+        File f = files.get(i);
+        try {
+          Testcase tc = TestcaseParser.parseXml(f);
+          tc.retainLogEntries(logLevel);
+          testCases[i] = tc;
+        } catch (IOException e) {
+          errors[i] = "File \"" + f + "\": " + e.getMessage();
+        }
+      }
+    }
+  }
+
+  /**
+   * The parsed test cases of a test data directory together with the errors of the result files
+   * that could not be parsed
+   */
+  static class CollectedTestcases implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    final TestCasesParseResult parseResult;
+
+    final List<String> errors;
+
+    CollectedTestcases(TestCasesParseResult parseResult, List<String> errors) {
+      this.parseResult = parseResult;
+      this.errors = errors;
+    }
+  }
+
+}
@@ -20,13 +20,16 @@
  */
 package com.piketec.jenkins.plugins.tpt;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.xml.sax.Attributes;
@@ -45,7 +48,11 @@ import hudson.FilePath;
  */
 public class TestcaseParser extends DefaultHandler {
 
-  private static final SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss dd.MM.yyyy");
+  // SimpleDateFormat and SAXParser are not thread safe, so every parsing thread gets its own
+  private static final ThreadLocal<SimpleDateFormat> sdf =
+      ThreadLocal.withInitial(() -> new SimpleDateFormat("HH:mm:ss dd.MM.yyyy"));
+
+  private static final ThreadLocal<SAXParser> saxParser = new ThreadLocal<>();
 
   private Testcase ti = null;
 
@@ -67,8 +74,36 @@ public class TestcaseParser extends DefaultHandler {
    */
   public static Testcase parseXml(FilePath xmlFile) throws IOException, InterruptedException {
     try (InputStream inputStream = xmlFile.read()) {
+      return parseXml(inputStream, xmlFile.getRemote());
+    }
+  }
+
+  /**
+   * Parse a local XML file to retrieve a testcase info instance (non null). Has to be used on the
+   * machine the file is located on.
+   * 
+   * @param xmlFile
+   *          testcase_information.xml
+   * @return A testcase, filled with the content of the xml-file.
+   * 
+   * @throws IOException
+   *           if the xml file cannot be read or has a wrong format
+   */
+  public static Testcase parseXml(File xmlFile) throws IOException {
+    try (InputStream inputStream = Files.newInputStream(xmlFile.toPath())) {
+      return parseXml(inputStream, xmlFile.getPath());
+    }
+  }
+
+  private static Testcase parseXml(InputStream inputStream, String xmlFile) throws IOException {
+    try {
       TestcaseParser parser = new TestcaseParser();
-      SAXParserFactory.newInstance().newSAXParser().parse(inputStream, parser);
+      SAXParser sax = getSaxParser();
+      try {
+        sax.parse(inputStream, parser);
+      } finally {
+        sax.reset();
+      }
       if (parser.ti == null) {
         throw new IOException(
             "XML file " + xmlFile + " does not contain tag <testcaseinformation>");
@@ -83,6 +118,15 @@ public class TestcaseParser extends DefaultHandler {
     }
   }
 
+  private static SAXParser getSaxParser() throws ParserConfigurationException, SAXException {
+    SAXParser sax = saxParser.get();
+    if (sax == null) {
+      sax = SAXParserFactory.newInstance().newSAXParser();
+      saxParser.set(sax);
+    }
+    return sax;
+  }
+
   // -------------------------------------
 
   private TestcaseParser() {
@@ -148,12 +192,10 @@ public class TestcaseParser extends DefaultHandler {
    */
   private Date parseDate(String value) throws SAXException {
     if (value != null) {
-      synchronized (sdf) {
-        try {
-          return sdf.parse(value);
-        } catch (ParseException e) {
-          throw new SAXException("Can't parse date format \"" + value + "\"");
-        }
+      try {
+        return sdf.get().parse(value);
+      } catch (ParseException e) {
+        throw new SAXException("Can't parse date format \"" + value + "\"");
       }
     } else {
       return null;
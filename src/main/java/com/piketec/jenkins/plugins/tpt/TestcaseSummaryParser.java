@@ -1,17 +1,13 @@
 package com.piketec.jenkins.plugins.tpt;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParserFactory;
-
-import org.xml.sax.Attributes;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
+import com.piketec.jenkins.plugins.tpt.TestSummary.TestcaseEntry;
 
 import hudson.FilePath;
 
@@ -26,13 +22,7 @@ import hudson.FilePath;
  * @author FInfantino, PikeTec GmbH
  *
  */
-public class TestcaseSummaryParser extends DefaultHandler {
-
-  private String executionConfigName;
-
-  private List<Testcase> testCases = new ArrayList<>();
-
-  private TptResult globalAssessmentResult = null;
+public class TestcaseSummaryParser {
 
   /**
    * Parse an XML file to retrieve a testcase info instance (non null)
@@ -49,66 +39,58 @@ public class TestcaseSummaryParser extends DefaultHandler {
   public static TestCasesParseResult parseXml(FilePath xmlFile)
       throws IOException, InterruptedException {
     try (InputStream inputStream = xmlFile.read()) {
-      TestcaseSummaryParser parser = new TestcaseSummaryParser();
-      SAXParserFactory.newInstance().newSAXParser().parse(inputStream, parser);
-      Testcase virtualGlobalAssessmentTestCase = null;
-      if (parser.globalAssessmentResult != null) {
-        virtualGlobalAssessmentTestCase = new Testcase();
-        virtualGlobalAssessmentTestCase.setPlatformName("global assessment");
-        virtualGlobalAssessmentTestCase.setName("result");
-        virtualGlobalAssessmentTestCase.setExecutionConfigName(parser.executionConfigName);
-        virtualGlobalAssessmentTestCase.setResult(parser.globalAssessmentResult);
-      }
-      return new TestCasesParseResult(parser.testCases, virtualGlobalAssessmentTestCase);
-    } catch (ParserConfigurationException e) {
-      throw new IOException("XML parser config error: " + e.getMessage());
-    } catch (SAXException e) {
-      throw new IOException("SAX error: " + e.getMessage());
-    } catch (IOException e) {
-      throw new IOException("I/O error: " + e.getMessage());
+      return toParseResult(TestSummary.parse(inputStream));
     }
   }
 
-  // -------------------------------------
-
-  private TestcaseSummaryParser() {
+  /**
+   * Parse a local test_summary.xml. Has to be used on the machine the file is located on. The
+   * parsed summary is shared with the report publisher.
+   * 
+   * @param xmlFile
+   *          test_summary.xml
+   * @return A testcase, filled with the content of the xml-file. Result is allways Execution Error.
+   * 
+   * @throws IOException
+   *           if the xml file cannot be read or has a wrong format
+   */
+  public static TestCasesParseResult parseXml(File xmlFile) throws IOException {
+    return toParseResult(TestSummary.read(xmlFile));
   }
 
-  @Override
-  public void startElement(String s, String s1, String elementName, Attributes attributes)
-      throws SAXException {
-    if (elementName.equals("Header")) {
-      executionConfigName = attributes.getValue("ExecutionConfig");
-    } else if (elementName.equalsIgnoreCase("Testcase")) {
+  private static TestCasesParseResult toParseResult(TestSummary summary) throws IOException {
+    List<Testcase> testCases = new ArrayList<>();
+    for (TestcaseEntry entry : summary.getTestCases()) {
       Testcase ti = new Testcase();
-      ti.setName(attributes.getValue("Name"));
+      ti.setName(entry.getName());
       try {
-        ti.setID(Integer.parseInt(attributes.getValue("Id")));
+        ti.setID(Integer.parseInt(entry.getId()));
       } catch (NumberFormatException e) {
-        throw new SAXException("Could not parse ScenarioId", e);
+        throw new IOException("SAX error: Could not parse ScenarioId");
       }
       ti.setResult(TptResult.EXECUTION_ERROR);
       ti.setExecDate(new Date());
       testCases.add(ti);
-    } else if (elementName.equals("GlobAssesslet")) {
-      String resultString = attributes.getValue("Result");
-      // some global assesslets simply have no result (e.g. Regquirements Coverage), thats not even
-      // "inconclusive"
-      if (resultString != null) {
-        globalAssessmentResult =
-            TptResult.worstCase(globalAssessmentResult, TptResult.fromString(resultString));
-      }
     }
+    TptResult globalAssessmentResult = null;
+    for (String result : summary.getGlobalAssessletResults()) {
+      globalAssessmentResult =
+          TptResult.worstCase(globalAssessmentResult, TptResult.fromString(result));
+    }
+    Testcase virtualGlobalAssessmentTestCase = null;
+    if (globalAssessmentResult != null) {
+      virtualGlobalAssessmentTestCase = new Testcase();
+      virtualGlobalAssessmentTestCase.setPlatformName("global assessment");
+      virtualGlobalAssessmentTestCase.setName("result");
+      virtualGlobalAssessmentTestCase.setExecutionConfigName(summary.getExecutionConfigName());
+      virtualGlobalAssessmentTestCase.setResult(globalAssessmentResult);
+    }
+    return new TestCasesParseResult(testCases, virtualGlobalAssessmentTestCase);
   }
 
-  @Override
-  public void endElement(String uri, String localName, String qName) throws SAXException {
-  }
+  // -------------------------------------
 
-  @Override
-  public void characters(char[] ac, int i, int j) throws SAXException {
+  private TestcaseSummaryParser() {
   }
 
-  // ---------------------
-
 }
@@ -1,14 +1,21 @@
 package com.piketec.jenkins.plugins.tpt;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.annotation.CheckForNull;
 
+import com.piketec.jenkins.plugins.tpt.Configuration.JenkinsConfiguration;
 import com.piketec.jenkins.plugins.tpt.api.callables.ExecuteTestsWorkerJobCallable;
+import com.piketec.jenkins.plugins.tpt.api.callables.ExecutionProgressListener;
+import com.piketec.jenkins.plugins.tpt.api.callables.GetAllTestCasesCallable;
 import com.piketec.jenkins.plugins.tpt.api.callables.GetTestCasesCallable;
 import com.piketec.jenkins.plugins.tpt.api.callables.GetTestCasesCallableResult;
+import com.piketec.jenkins.plugins.tpt.api.callables.RmiCallStatisticsCollector;
 import com.piketec.jenkins.plugins.tpt.api.callables.RunOverviewReportCallable;
+import com.piketec.jenkins.plugins.tpt.api.callables.TptApiCallable;
+import com.piketec.jenkins.plugins.tpt.api.callables.TptProcessPoolConfig;
 
 import hudson.FilePath;
 import hudson.Launcher;
@@ -34,6 +41,12 @@ public class TptApiAccess {
 
   private long startUpWaitTime;
 
+  @CheckForNull
+  private TptProcessPoolConfig processPoolConfig = null;
+
+  @CheckForNull
+  private RmiCallStatisticsCollector statisticsCollector = null;
+
   /**
    * Provide all information that is needed to establish an TPT API connection. This information is
    * needed for any Callable that is called in later methods, so to reduce parameters in these
@@ -64,6 +77,34 @@ public class TptApiAccess {
     this.startUpWaitTime = tptStartupWaitTime;
   }
 
+  /**
+   * @param processPoolConfig
+   *          the settings for the TPT instances kept alive on the agent or <code>null</code> to
+   *          keep the settings of the agent
+   */
+  public void setProcessPoolConfig(@CheckForNull TptProcessPoolConfig processPoolConfig) {
+    this.processPoolConfig = processPoolConfig;
+  }
+
+  /**
+   * @param statisticsCollector
+   *          the collector the statistics of the TPT API calls of every callable are reported to or
+   *          <code>null</code>
+   */
+  public void setStatisticsCollector(@CheckForNull RmiCallStatisticsCollector statisticsCollector) {
+    this.statisticsCollector = statisticsCollector;
+  }
+
+  /**
+   * Exports the statistics collector, if any, to the agent and passes it to the callable.
+   */
+  private void exportStatisticsCollector(TptApiCallable< ? > callable, VirtualChannel channel) {
+    if (statisticsCollector != null) {
+      callable.setStatisticsCollector(
+          channel.export(RmiCallStatisticsCollector.class, statisticsCollector));
+    }
+  }
+
   /**
    * Get all test cases for the given test set. If the test set is <code>null</code> or empty, the
    * test sets of the execution configuration are evaluated.
@@ -85,6 +126,7 @@ public class TptApiAccess {
     GetTestCasesCallable callable =
         new GetTestCasesCallable(launcher.getListener(), tptPort, tptBindingName, exePaths,
             arguments, startUpWaitTime, tptFilePath, executionConfigName, testSet);
+    callable.setProcessPoolConfig(processPoolConfig);
     GetTestCasesCallableResult testCases = null;
     try {
       VirtualChannel channel = launcher.getChannel();
@@ -92,6 +134,50 @@ public class TptApiAccess {
         logger.error("Unable to get test cases: Agent does not support virtual channels.");
         return testCases;
       }
+      exportStatisticsCollector(callable, channel);
+      testCases = channel.call(callable);
+    } catch (IOException e) {
+      logger.error("Unable to get test cases: " + e.getMessage());
+    }
+    return testCases;
+  }
+
+  /**
+   * Get the test cases of several execution configurations with a single TPT API connection. Every
+   * TPT file is opened only once.
+   * 
+   * @param workspace
+   *          the workspace the TPT files are relative to
+   * @param resolvedConfigs
+   *          the execution configurations with resolved variables
+   * @return the test cases of every execution configuration in the same order, <code>null</code>
+   *         for an execution configuration whose test cases could not be determined.
+   *         <code>null</code> if the test cases could not be collected at all.
+   * @throws InterruptedException
+   *           If thread was interrupted
+   */
+  @CheckForNull
+  public List<GetTestCasesCallableResult> getTestCases(FilePath workspace,
+                                                       List<JenkinsConfiguration> resolvedConfigs)
+      throws InterruptedException {
+    List<GetTestCasesCallable> queries = new ArrayList<>();
+    for (JenkinsConfiguration resolvedConfig : resolvedConfigs) {
+      queries.add(new GetTestCasesCallable(launcher.getListener(), tptPort, tptBindingName,
+          exePaths, arguments, startUpWaitTime,
+          new FilePath(workspace, resolvedConfig.getTptFile()), resolvedConfig.getConfiguration(),
+          resolvedConfig.getTestSet()));
+    }
+    GetAllTestCasesCallable callable = new GetAllTestCasesCallable(launcher.getListener(),
+        tptPort, tptBindingName, exePaths, arguments, startUpWaitTime, queries);
+    callable.setProcessPoolConfig(processPoolConfig);
+    List<GetTestCasesCallableResult> testCases = null;
+    try {
+      VirtualChannel channel = launcher.getChannel();
+      if (channel == null) {
+        logger.error("Unable to get test cases: Agent does not support virtual channels.");
+        return testCases;
+      }
+      exportStatisticsCollector(callable, channel);
       testCases = channel.call(callable);
     } catch (IOException e) {
       logger.error("Unable to get test cases: " + e.getMessage());
@@ -123,6 +209,7 @@ public class TptApiAccess {
     RunOverviewReportCallable callable = new RunOverviewReportCallable(launcher.getListener(),
         tptPort, tptBindingName, exePaths, arguments, startUpWaitTime, tptFilePath,
         executionConfigName, testSet, reportPath, testDataPath);
+    callable.setProcessPoolConfig(processPoolConfig);
     Boolean worked = false;
     try {
       VirtualChannel channel = launcher.getChannel();
@@ -130,6 +217,7 @@ public class TptApiAccess {
         logger.error("Unable to run overview report: Agent does not support virtual channels.");
         return worked;
       }
+      exportStatisticsCollector(callable, channel);
       worked = channel.call(callable);
     } catch (IOException e) {
       logger.error("Unable to run overview report: " + e.getMessage());
@@ -152,18 +240,27 @@ public class TptApiAccess {
    *          - path to where the test data shall be put
    * @param testSetList
    *          The list of test cases to execute
+   * @param reservedCores
+   *          The number of processors of the agent not used for the execution or
+   *          <code>null</code> to keep the number of cores of the execution configuration
+   * @param progressListener
+   *          The listener to report the progress of the execution to or <code>null</code>
    * @return true if the execution was successful, false otherwise.
    * @throws InterruptedException
    *           If thread was interrupted
    */
   public Boolean executeTestsOnWorker(FilePath tptFilePath, String executionConfigName,
                                      String testSetName, FilePath workerJobReportPath,
-                                     FilePath workerJobDataPath, List<String> testSetList)
+                                     FilePath workerJobDataPath, List<String> testSetList,
+                                     @CheckForNull Integer reservedCores,
+                                     @CheckForNull ExecutionProgressListener progressListener)
       throws InterruptedException {
     ExecuteTestsWorkerJobCallable callable =
         new ExecuteTestsWorkerJobCallable(launcher.getListener(), tptPort, tptBindingName, exePaths,
             arguments, startUpWaitTime, tptFilePath, workerJobReportPath, workerJobDataPath,
             executionConfigName, testSetList, testSetName);
+    callable.setProcessPoolConfig(processPoolConfig);
+    callable.setReservedCores(reservedCores);
     Boolean worked = false;
     try {
       VirtualChannel channel = launcher.getChannel();
@@ -171,6 +268,11 @@ public class TptApiAccess {
         logger.error("Unable to execute tests on agent: Agent does not support virtual channels.");
         return worked;
       }
+      exportStatisticsCollector(callable, channel);
+      if (progressListener != null) {
+        callable.setProgressListener(
+            channel.export(ExecutionProgressListener.class, progressListener));
+      }
       worked = channel.call(callable);
     } catch (IOException e) {
       logger.error("\"Unable to execute tests on agent: " + e.getMessage());
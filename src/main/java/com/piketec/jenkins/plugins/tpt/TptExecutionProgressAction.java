@@ -0,0 +1,232 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.piketec.jenkins.plugins.tpt.api.callables.ExecutionProgressListener;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * Shows the progress of the worker jobs of a distributing build: the number of finished test cases,
+ * the throughput, the estimated remaining time and the test case that is currently running.
+ */
+public class TptExecutionProgressAction implements RunAction2 {
+
+  private transient Run< ? , ? > run;
+
+  private final Map<String, WorkerProgress> workers = new LinkedHashMap<>();
+
+  /**
+   * Returns the progress action of the given distributing build and attaches a new one if the build
+   * has none yet.
+   * 
+   * @param distributingJobRun
+   *          The distributing build
+   * @return the progress action of the build
+   */
+  public static synchronized TptExecutionProgressAction getOrCreate(
+      Run< ? , ? > distributingJobRun) {
+    TptExecutionProgressAction action =
+        distributingJobRun.getAction(TptExecutionProgressAction.class);
+    if (action == null) {
+      action = new TptExecutionProgressAction();
+      distributingJobRun.addAction(action);
+    }
+    return action;
+  }
+
+  /**
+   * Creates a listener that updates the progress of one execution of a worker job. The listener is
+   * meant to be exported to the agent.
+   * 
+   * @param workerName
+   *          The name of the worker job build shown on the page
+   * @return the listener
+   */
+  public ExecutionProgressListener createListener(String workerName) {
+    return new ProgressListener(workerName);
+  }
+
+  @Override
+  public void onAttached(Run< ? , ? > run) {
+    this.run = run;
+  }
+
+  @Override
+  public void onLoad(Run< ? , ? > run) {
+    this.run = run;
+  }
+
+  /**
+   * @return The distributing build
+   */
+  public Run< ? , ? > getRun() {
+    return run;
+  }
+
+  @Override
+  public String getIconFileName() {
+    return "/plugin/piketec-tpt/tpt.ico";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "TPT Execution Progress";
+  }
+
+  @Override
+  public String getUrlName() {
+    return "TPT_Progress";
+  }
+
+  /**
+   * @return the progress of all worker job executions in the order they started
+   */
+  public synchronized List<WorkerProgress> getWorkers() {
+    return new ArrayList<>(workers.values());
+  }
+
+  private synchronized void update(String workerName, int finished, int total,
+                                   String currentTestCase, long elapsedMillis) {
+    WorkerProgress progress = workers.get(workerName);
+    if (progress == null) {
+      progress = new WorkerProgress(workerName);
+      workers.put(workerName, progress);
+    }
+    long now = System.currentTimeMillis();
+    if (currentTestCase == null || !currentTestCase.equals(progress.currentTestCase)) {
+      progress.currentTestCaseStart = now;
+    }
+    progress.finished = finished;
+    progress.total = total;
+    progress.currentTestCase = currentTestCase;
+    progress.elapsedMillis = elapsedMillis;
+    progress.updated = now;
+  }
+
+  /**
+   * The progress of one execution of a worker job
+   */
+  public static class WorkerProgress {
+
+    private final String name;
+
+    private int finished;
+
+    private int total;
+
+    private String currentTestCase;
+
+    private long currentTestCaseStart;
+
+    private long elapsedMillis;
+
+    private long updated;
+
+    WorkerProgress(String name) {
+      this.name = name;
+    }
+
+    /**
+     * @return the name of the worker job build
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the number of finished test cases
+     */
+    public int getFinished() {
+      return finished;
+    }
+
+    /**
+     * @return the number of test cases of the execution
+     */
+    public int getTotal() {
+      return total;
+    }
+
+    /**
+     * @return the running test case or an empty string if no test case is running
+     */
+    public String getCurrentTestCase() {
+      return currentTestCase == null ? "" : currentTestCase;
+    }
+
+    /**
+     * @return how long the current test case is running, formatted as hours, minutes and seconds
+     */
+    public String getCurrentTestCaseDuration() {
+      if (currentTestCase == null) {
+        return "";
+      }
+      return Utils.formatDuration(System.currentTimeMillis() - currentTestCaseStart);
+    }
+
+    /**
+     * @return the finished test cases per minute
+     */
+    public String getThroughput() {
+      if (elapsedMillis <= 0) {
+        return "";
+      }
+      return String.format("%.1f", finished * 60000.0 / elapsedMillis);
+    }
+
+    /**
+     * @return the estimated remaining time of the execution, formatted as hours, minutes and
+     *         seconds
+     */
+    public String getRemaining() {
+      if (finished == 0 || finished >= total) {
+        return "";
+      }
+      long elapsed = elapsedMillis + (currentTestCase == null ? 0
+          : System.currentTimeMillis() - updated);
+      return Utils.formatDuration(elapsed * (total - finished) / finished);
+    }
+  }
+
+  /**
+   * Forwards the progress reported by the agent to the action
+   */
+  private class ProgressListener implements ExecutionProgressListener {
+
+    private final String workerName;
+
+    ProgressListener(String workerName) {
+      this.workerName = workerName;
+    }
+
+    @Override
+    public void progress(int finished, int total, String currentTestCase, long elapsedMillis) {
+      update(workerName, finished, total, currentTestCase, elapsedMillis);
+    }
+  }
+}
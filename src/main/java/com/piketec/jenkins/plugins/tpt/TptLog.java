@@ -20,10 +20,14 @@
  */
 package com.piketec.jenkins.plugins.tpt;
 
+import java.io.Serializable;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
-class TptLog {
+class TptLog implements Serializable {
+
+  private static final long serialVersionUID = 1L;
 
   static enum LogLevel {
     NONE, ERROR, WARNING, INFO, ALL
@@ -51,7 +55,18 @@ class TptLog {
     return result;
   }
 
-  public static class LogEntry {
+  void retain(LogLevel level) {
+    Iterator<LogEntry> it = logEntries.iterator();
+    while (it.hasNext()) {
+      if (it.next().level.ordinal() > level.ordinal()) {
+        it.remove();
+      }
+    }
+  }
+
+  public static class LogEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     final LogLevel level;
 
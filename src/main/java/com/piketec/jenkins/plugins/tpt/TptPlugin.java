@@ -82,6 +82,28 @@ public class TptPlugin extends Builder implements SimpleBuildStep {
   @CheckForNull
   private String workerJobTries = null;
 
+  private boolean balanceByDuration = DescriptorImpl.getDefaultBalanceByDuration();
+
+  @CheckForNull
+  private String defaultTestCaseDuration = null;
+
+  @CheckForNull
+  private String workerBatchSize = null;
+
+  @CheckForNull
+  private String workerJobTimeout = null;
+
+  private boolean parallelConfigurations = DescriptorImpl.getDefaultParallelConfigurations();
+
+  @CheckForNull
+  private String speculativeFactor = null;
+
+  @CheckForNull
+  private String failFastExecutionErrors = null;
+
+  @CheckForNull
+  private String failFastFailureRate = null;
+
   @CheckForNull
   private String tptBindingName = null;
 
@@ -259,7 +281,8 @@ public class TptPlugin extends Builder implements SimpleBuildStep {
 
   /**
    * @return The number of worker jobs the plugin will run in distributing mode. A value below 1
-   *         means every test case will be started in its own job.
+   *         means every test case will be started in its own job. "auto" chooses the number from
+   *         the idle executors.
    */
   public String getWorkerJobCount() {
     return workerJobCount == null ? DescriptorImpl.DEFAULT_WORKER_JOB_COUNT : workerJobCount;
@@ -268,7 +291,8 @@ public class TptPlugin extends Builder implements SimpleBuildStep {
   /**
    * @param workerJobCount
    *          The number of worker jobs the plugin will run in distributing mode. A value below 1
-   *          means every test case will be started in its own job.
+   *          means every test case will be started in its own job. "auto" chooses the number from
+   *          the idle executors.
    */
   @DataBoundSetter
   public void setWorkerJobCount(String workerJobCount) {
@@ -322,6 +346,163 @@ public class TptPlugin extends Builder implements SimpleBuildStep {
         DescriptorImpl.DEFAULT_WORKER_JOB_TRIES.equals(slaveJobTries) ? null : slaveJobTries;
   }
 
+  /**
+   * @return if the test cases should be distributed to the worker jobs by their execution duration
+   *         of the previous run instead of their count
+   */
+  public boolean isBalanceByDuration() {
+    return balanceByDuration;
+  }
+
+  /**
+   * @param balanceByDuration
+   *          if the test cases should be distributed to the worker jobs by their execution
+   *          duration of the previous run instead of their count
+   */
+  @DataBoundSetter
+  public void setBalanceByDuration(boolean balanceByDuration) {
+    this.balanceByDuration = balanceByDuration;
+  }
+
+  /**
+   * @return The estimated execution duration in seconds of test cases without a previous result
+   */
+  public String getDefaultTestCaseDuration() {
+    return defaultTestCaseDuration == null ? DescriptorImpl.DEFAULT_TEST_CASE_DURATION
+        : defaultTestCaseDuration;
+  }
+
+  /**
+   * @param defaultTestCaseDuration
+   *          The estimated execution duration in seconds of test cases without a previous result
+   */
+  @DataBoundSetter
+  public void setDefaultTestCaseDuration(String defaultTestCaseDuration) {
+    this.defaultTestCaseDuration =
+        DescriptorImpl.DEFAULT_TEST_CASE_DURATION.equals(defaultTestCaseDuration) ? null
+            : defaultTestCaseDuration;
+  }
+
+  /**
+   * @return The number of test cases a worker job claims at once from the test cases still to
+   *         execute. A value below 1 means every worker job gets a fixed set of test cases.
+   */
+  public String getWorkerBatchSize() {
+    return workerBatchSize == null ? DescriptorImpl.DEFAULT_WORKER_BATCH_SIZE : workerBatchSize;
+  }
+
+  /**
+   * @param workerBatchSize
+   *          The number of test cases a worker job claims at once from the test cases still to
+   *          execute. A value below 1 means every worker job gets a fixed set of test cases.
+   */
+  @DataBoundSetter
+  public void setWorkerBatchSize(String workerBatchSize) {
+    this.workerBatchSize =
+        DescriptorImpl.DEFAULT_WORKER_BATCH_SIZE.equals(workerBatchSize) ? null : workerBatchSize;
+  }
+
+  /**
+   * @return The time in minutes after which a worker job build is aborted and counts as a failed
+   *         try. A value less or equal zero means no timeout.
+   */
+  public String getWorkerJobTimeout() {
+    return workerJobTimeout == null ? DescriptorImpl.DEFAULT_WORKER_JOB_TIMEOUT : workerJobTimeout;
+  }
+
+  /**
+   * @param workerJobTimeout
+   *          The time in minutes after which a worker job build is aborted and counts as a failed
+   *          try. A value less or equal zero means no timeout.
+   */
+  @DataBoundSetter
+  public void setWorkerJobTimeout(String workerJobTimeout) {
+    this.workerJobTimeout =
+        DescriptorImpl.DEFAULT_WORKER_JOB_TIMEOUT.equals(workerJobTimeout) ? null
+            : workerJobTimeout;
+  }
+
+  /**
+   * @return if the worker jobs of all execution configurations should be scheduled at once
+   */
+  public boolean isParallelConfigurations() {
+    return parallelConfigurations;
+  }
+
+  /**
+   * @param parallelConfigurations
+   *          if the worker jobs of all execution configurations should be scheduled at once
+   */
+  @DataBoundSetter
+  public void setParallelConfigurations(boolean parallelConfigurations) {
+    this.parallelConfigurations = parallelConfigurations;
+  }
+
+  /**
+   * @return If a worker job takes this multiple of the median runtime of the finished worker jobs,
+   *         its test cases are executed by another worker job as well. A value less or equal zero
+   *         disables speculative execution.
+   */
+  public String getSpeculativeFactor() {
+    return speculativeFactor == null ? DescriptorImpl.DEFAULT_SPECULATIVE_FACTOR
+        : speculativeFactor;
+  }
+
+  /**
+   * @param speculativeFactor
+   *          If a worker job takes this multiple of the median runtime of the finished worker
+   *          jobs, its test cases are executed by another worker job as well. A value less or
+   *          equal zero disables speculative execution.
+   */
+  @DataBoundSetter
+  public void setSpeculativeFactor(String speculativeFactor) {
+    this.speculativeFactor =
+        DescriptorImpl.DEFAULT_SPECULATIVE_FACTOR.equals(speculativeFactor) ? null
+            : speculativeFactor;
+  }
+
+  /**
+   * @return The number of execution errors reported by the worker jobs after which all remaining
+   *         worker jobs are canceled. A value less or equal zero disables this check.
+   */
+  public String getFailFastExecutionErrors() {
+    return failFastExecutionErrors == null ? DescriptorImpl.DEFAULT_FAIL_FAST_EXECUTION_ERRORS
+        : failFastExecutionErrors;
+  }
+
+  /**
+   * @param failFastExecutionErrors
+   *          The number of execution errors reported by the worker jobs after which all remaining
+   *          worker jobs are canceled. A value less or equal zero disables this check.
+   */
+  @DataBoundSetter
+  public void setFailFastExecutionErrors(String failFastExecutionErrors) {
+    this.failFastExecutionErrors =
+        DescriptorImpl.DEFAULT_FAIL_FAST_EXECUTION_ERRORS.equals(failFastExecutionErrors) ? null
+            : failFastExecutionErrors;
+  }
+
+  /**
+   * @return The percentage of failed test cases reported by the worker jobs after which all
+   *         remaining worker jobs are canceled. A value less or equal zero disables this check.
+   */
+  public String getFailFastFailureRate() {
+    return failFastFailureRate == null ? DescriptorImpl.DEFAULT_FAIL_FAST_FAILURE_RATE
+        : failFastFailureRate;
+  }
+
+  /**
+   * @param failFastFailureRate
+   *          The percentage of failed test cases reported by the worker jobs after which all
+   *          remaining worker jobs are canceled. A value less or equal zero disables this check.
+   */
+  @DataBoundSetter
+  public void setFailFastFailureRate(String failFastFailureRate) {
+    this.failFastFailureRate =
+        DescriptorImpl.DEFAULT_FAIL_FAST_FAILURE_RATE.equals(failFastFailureRate) ? null
+            : failFastFailureRate;
+  }
+
   /**
    * @return the RMI binding name for TPT
    */
@@ -594,8 +775,12 @@ public class TptPlugin extends Builder implements SimpleBuildStep {
     }
     // expand slaveJobCount
     int parsedWorkerJobCount = 1;
+    boolean autoWorkerJobCount = false;
     String workerJobCount = getWorkerJobCount();
-    if (!workerJobCount.isEmpty()) {
+    if (DescriptorImpl.AUTO_WORKER_JOB_COUNT
+        .equalsIgnoreCase(environment.expand(workerJobCount).trim())) {
+      autoWorkerJobCount = true;
+    } else if (!workerJobCount.isEmpty()) {
       try {
         parsedWorkerJobCount = Integer.parseInt(environment.expand(workerJobCount));
       } catch (NumberFormatException e) {
@@ -614,6 +799,79 @@ public class TptPlugin extends Builder implements SimpleBuildStep {
             + environment.expand(workerJobCount) + "\" is not an integer. Using default value.");
       }
     }
+    // expand workerBatchSize
+    int parsedWorkerBatchSize = 0;
+    String workerBatchSize = getWorkerBatchSize();
+    if (!workerBatchSize.isEmpty()) {
+      try {
+        parsedWorkerBatchSize = Integer.parseInt(environment.expand(workerBatchSize));
+      } catch (NumberFormatException e) {
+        logger.error("The given worker job batch size \"" + environment.expand(workerBatchSize)
+            + "\" is not an integer. Using default value.");
+      }
+    }
+    // expand default test case duration
+    long parsedDefaultTestCaseDuration =
+        Long.parseLong(DescriptorImpl.DEFAULT_TEST_CASE_DURATION) * 1000;
+    String defaultTestCaseDuration = getDefaultTestCaseDuration();
+    // used by duration balancing, the sorting of the test case pool and the automatic worker count
+    if ((isBalanceByDuration() || parsedWorkerBatchSize >= 1 || autoWorkerJobCount)
+        && !defaultTestCaseDuration.isEmpty()) {
+      try {
+        parsedDefaultTestCaseDuration =
+            Long.parseLong(environment.expand(defaultTestCaseDuration)) * 1000;
+      } catch (NumberFormatException e) {
+        logger.error("The given default test case duration \""
+            + environment.expand(defaultTestCaseDuration)
+            + "\" is not an integer. Using default value.");
+      }
+    }
+    // expand workerJobTimeout
+    long parsedWorkerJobTimeout = 0;
+    String workerJobTimeout = getWorkerJobTimeout();
+    if (!workerJobTimeout.isEmpty()) {
+      try {
+        parsedWorkerJobTimeout = Long.parseLong(environment.expand(workerJobTimeout)) * 60 * 1000;
+      } catch (NumberFormatException e) {
+        logger.error("The given worker job timeout \"" + environment.expand(workerJobTimeout)
+            + "\" is not an integer. Using default value.");
+      }
+    }
+    // expand speculativeFactor
+    double parsedSpeculativeFactor = 0;
+    String speculativeFactor = getSpeculativeFactor();
+    if (!speculativeFactor.isEmpty()) {
+      try {
+        parsedSpeculativeFactor = Double.parseDouble(environment.expand(speculativeFactor));
+      } catch (NumberFormatException e) {
+        logger.error("The given speculative execution factor \""
+            + environment.expand(speculativeFactor) + "\" is not a number. Using default value.");
+      }
+    }
+    // expand failFastExecutionErrors
+    int parsedFailFastExecutionErrors = 0;
+    String failFastExecutionErrors = getFailFastExecutionErrors();
+    if (!failFastExecutionErrors.isEmpty()) {
+      try {
+        parsedFailFastExecutionErrors =
+            Integer.parseInt(environment.expand(failFastExecutionErrors));
+      } catch (NumberFormatException e) {
+        logger.error("The given number of execution errors to fail fast \""
+            + environment.expand(failFastExecutionErrors)
+            + "\" is not an integer. Using default value.");
+      }
+    }
+    // expand failFastFailureRate
+    double parsedFailFastFailureRate = 0;
+    String failFastFailureRate = getFailFastFailureRate();
+    if (!failFastFailureRate.isEmpty()) {
+      try {
+        parsedFailFastFailureRate = Double.parseDouble(environment.expand(failFastFailureRate));
+      } catch (NumberFormatException e) {
+        logger.error("The given failure rate to fail fast \""
+            + environment.expand(failFastFailureRate) + "\" is not a number. Using default value.");
+      }
+    }
     // expand other variables
     String expandedWorkerJobName = environment.expand(getWorkerJob());
     // start execution
@@ -622,6 +880,15 @@ public class TptPlugin extends Builder implements SimpleBuildStep {
             expandedArguments, configs, expandedTptPort, expandedTptBindingName,
             expandedWorkerJobName, expandedTptStartupWaitTime, parsedWorkerJobCount,
             parsedWorkerJobTries, jUnitXmlPath, getJUnitLogLevel(), isEnableJunit());
+    executor.setBalanceByDuration(isBalanceByDuration());
+    executor.setDefaultTestCaseDuration(parsedDefaultTestCaseDuration);
+    executor.setWorkerBatchSize(parsedWorkerBatchSize);
+    executor.setWorkerJobTimeout(parsedWorkerJobTimeout);
+    executor.setParallelConfigurations(isParallelConfigurations());
+    executor.setSpeculativeFactor(parsedSpeculativeFactor);
+    executor.setAutoWorkerJobCount(autoWorkerJobCount);
+    executor.setFailFastExecutionErrors(parsedFailFastExecutionErrors);
+    executor.setFailFastFailureRate(parsedFailFastFailureRate);
     try {
       return executor.execute();
     } finally {
@@ -651,6 +918,20 @@ public class TptPlugin extends Builder implements SimpleBuildStep {
 
     public static final String DEFAULT_WORKER_JOB_TRIES = "1";
 
+    public static final String AUTO_WORKER_JOB_COUNT = "auto";
+
+    public static final String DEFAULT_TEST_CASE_DURATION = "60";
+
+    public static final String DEFAULT_WORKER_BATCH_SIZE = "0";
+
+    public static final String DEFAULT_WORKER_JOB_TIMEOUT = "0";
+
+    public static final String DEFAULT_SPECULATIVE_FACTOR = "0";
+
+    public static final String DEFAULT_FAIL_FAST_EXECUTION_ERRORS = "0";
+
+    public static final String DEFAULT_FAIL_FAST_FAILURE_RATE = "0";
+
     /**
      * @return "TptApi"
      */
@@ -679,6 +960,20 @@ public class TptPlugin extends Builder implements SimpleBuildStep {
       return Integer.toString(Utils.DEFAULT_STARTUP_WAIT_TIME);
     }
 
+    /**
+     * @return <code>false</code>
+     */
+    public static boolean getDefaultBalanceByDuration() {
+      return false;
+    }
+
+    /**
+     * @return <code>false</code>
+     */
+    public static boolean getDefaultParallelConfigurations() {
+      return false;
+    }
+
     /**
      * @return <code>false</code>
      */
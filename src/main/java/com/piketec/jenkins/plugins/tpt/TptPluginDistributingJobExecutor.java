@@ -20,12 +20,22 @@
  */
 package com.piketec.jenkins.plugins.tpt;
 
+import java.io.File;
 import java.io.IOException;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -37,7 +47,10 @@ import com.piketec.jenkins.plugins.tpt.api.callables.GetTestCasesCallableResult;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Computer;
 import hudson.model.Job;
+import hudson.model.Label;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
@@ -45,6 +58,12 @@ import jenkins.model.Jenkins;
 
 class TptPluginDistributingJobExecutor {
 
+  /**
+   * The interval in milliseconds the worker jobs are checked for speculative execution or
+   * additional executors
+   */
+  private static final long SUPERVISION_INTERVAL = 10000;
+
   private TptLogger logger;
 
   private Launcher launcher;
@@ -79,6 +98,33 @@ class TptPluginDistributingJobExecutor {
 
   private boolean enableJunit;
 
+  private boolean balanceByDuration;
+
+  private long defaultTestCaseDuration =
+      Long.parseLong(TptPlugin.DescriptorImpl.DEFAULT_TEST_CASE_DURATION) * 1000;
+
+  private int workerBatchSize;
+
+  private long workerJobTimeout;
+
+  private boolean parallelConfigurations;
+
+  private double speculativeFactor;
+
+  private boolean autoWorkerJobCount;
+
+  private int failFastExecutionErrors;
+
+  private double failFastFailureRate;
+
+  private volatile boolean failedFast = false;
+
+  /**
+   * The test cases of the enabled execution configurations, enumerated at the start of the build
+   */
+  private final Map<JenkinsConfiguration, GetTestCasesCallableResult> enumeratedTestCases =
+      new HashMap<>();
+
   /**
    * @param build
    *          to get the workspace, for the cleanuptask and for triggering a build for a worker job
@@ -112,7 +158,7 @@ class TptPluginDistributingJobExecutor {
                                    TaskListener listener, FilePath[] exePaths, String arguments,
                                    List<JenkinsConfiguration> executionConfigs, int tptPort,
                                    String tptBindingName, String workerJobName,
-                                   long tptStartupWaitTime, int workertJobCount, int workerJobTries,
+                                   long tptStartupWaitTime, int workerJobCount, int workerJobTries,
                                    String jUnitXmlPath, LogLevel jUnitLogLevel,
                                    boolean enableJunit) {
     this.logger = new TptLogger(listener.getLogger());
@@ -127,13 +173,93 @@ class TptPluginDistributingJobExecutor {
     this.tptBindingName = tptBindingName;
     this.workerJobName = workerJobName;
     this.tptStartupWaitTime = tptStartupWaitTime;
-    this.workerJobCount = workertJobCount;
+    this.workerJobCount = workerJobCount;
     this.workerJobTries = workerJobTries;
     this.jUnitLogLevel = jUnitLogLevel;
     this.jUnitXmlPath = jUnitXmlPath;
     this.enableJunit = enableJunit;
   }
 
+  /**
+   * @param balanceByDuration
+   *          distribute the test cases by their execution duration of the previous run instead of
+   *          their count
+   */
+  void setBalanceByDuration(boolean balanceByDuration) {
+    this.balanceByDuration = balanceByDuration;
+  }
+
+  /**
+   * @param defaultTestCaseDuration
+   *          the estimated duration in milliseconds for test cases without a previous result
+   */
+  void setDefaultTestCaseDuration(long defaultTestCaseDuration) {
+    this.defaultTestCaseDuration = defaultTestCaseDuration;
+  }
+
+  /**
+   * @param workerBatchSize
+   *          if greater than zero the worker jobs claim batches of this size from a shared test
+   *          case pool instead of executing a fixed set of test cases
+   */
+  void setWorkerBatchSize(int workerBatchSize) {
+    this.workerBatchSize = workerBatchSize;
+  }
+
+  /**
+   * @param workerJobTimeout
+   *          the time in milliseconds after which a worker job build is aborted and counts as a
+   *          failed try, no timeout if less or equal zero
+   */
+  void setWorkerJobTimeout(long workerJobTimeout) {
+    this.workerJobTimeout = workerJobTimeout;
+  }
+
+  /**
+   * @param parallelConfigurations
+   *          schedule the worker jobs of all execution configurations at once
+   */
+  void setParallelConfigurations(boolean parallelConfigurations) {
+    this.parallelConfigurations = parallelConfigurations;
+  }
+
+  /**
+   * @param speculativeFactor
+   *          if greater than zero a worker job whose runtime exceeds this multiple of the median
+   *          runtime of the finished worker jobs is executed a second time as soon as no workload
+   *          is waiting anymore. Whichever finishes successfully first wins.
+   */
+  void setSpeculativeFactor(double speculativeFactor) {
+    this.speculativeFactor = speculativeFactor;
+  }
+
+  /**
+   * @param autoWorkerJobCount
+   *          choose the number of worker jobs from the idle executors instead of using
+   *          <code>workerJobCount</code>
+   */
+  void setAutoWorkerJobCount(boolean autoWorkerJobCount) {
+    this.autoWorkerJobCount = autoWorkerJobCount;
+  }
+
+  /**
+   * @param failFastExecutionErrors
+   *          if greater than zero all worker jobs are canceled as soon as the worker jobs reported
+   *          this many test cases with an execution error
+   */
+  void setFailFastExecutionErrors(int failFastExecutionErrors) {
+    this.failFastExecutionErrors = failFastExecutionErrors;
+  }
+
+  /**
+   * @param failFastFailureRate
+   *          if greater than zero all worker jobs are canceled as soon as this percentage of the
+   *          test cases reported by the worker jobs failed or had an execution error
+   */
+  void setFailFastFailureRate(double failFastFailureRate) {
+    this.failFastFailureRate = failFastFailureRate;
+  }
+
   /**
    * It binds to the Tpt Api , check if the given Execution Configuration exists. Prepares the test-
    * and data-directories. Then it split all the test cases (the currently set test set or the
@@ -149,6 +275,8 @@ class TptPluginDistributingJobExecutor {
   boolean execute() throws InterruptedException {
     TptApiAccess tptApiAccess = new TptApiAccess(launcher, logger, exePaths,
         Utils.parseCommandLine(arguments), tptPort, tptBindingName, tptStartupWaitTime);
+    tptApiAccess
+        .setStatisticsCollector(TptRmiCallStatisticsAction.getOrCreate(build).createCollector());
     boolean success = true;
     // We delete the JUnit results before iterating over the jenkinsConfigs
     if (workspace == null) {
@@ -157,8 +285,18 @@ class TptPluginDistributingJobExecutor {
     }
     removeJUnitData(workspace);
     try {
-      for (JenkinsConfiguration ec : executionConfigs) {
-        success &= executeOneConfig(ec, tptApiAccess);
+      enumerateTestCases(tptApiAccess);
+      if (parallelConfigurations) {
+        success &= executeConfigsInParallel(tptApiAccess);
+      } else {
+        for (JenkinsConfiguration ec : executionConfigs) {
+          if (failedFast) {
+            logger.error("Skipping remaining execution configurations.");
+            success = false;
+            break;
+          }
+          success &= executeOneConfig(ec, tptApiAccess);
+        }
       }
     } finally {
       logger.info("Close open TPT project of distributing job and worker jobs.");
@@ -184,6 +322,61 @@ class TptPluginDistributingJobExecutor {
     }
   }
 
+  /**
+   * Collects the test cases of all enabled execution configurations at once, so the worker jobs of
+   * the following execution configurations can be scheduled without waiting for TPT. Every TPT file
+   * is opened only once. Execution configurations whose test cases could not be collected here are
+   * collected again when they are scheduled.
+   */
+  private void enumerateTestCases(TptApiAccess tptApiAccess) throws InterruptedException {
+    List<JenkinsConfiguration> unresolvedConfigs = new ArrayList<>();
+    List<JenkinsConfiguration> resolvedConfigs = new ArrayList<>();
+    for (JenkinsConfiguration ec : executionConfigs) {
+      if (ec.isEnableTest()) {
+        unresolvedConfigs.add(ec);
+        resolvedConfigs.add(resolve(ec));
+      }
+    }
+    if (resolvedConfigs.size() < 2) {
+      // nothing to gain
+      return;
+    }
+    // Register cleanup task that is called in the end to close remote TPT Projects
+    Set<String> tptFiles = new HashSet<>();
+    for (JenkinsConfiguration resolvedConfig : resolvedConfigs) {
+      FilePath tptFilePath = new FilePath(workspace, resolvedConfig.getTptFile());
+      if (tptFiles.add(tptFilePath.getRemote())) {
+        CleanUpCallable cleanUpCallable = new CleanUpCallable(listener, "localhost", tptPort,
+            tptBindingName, exePaths, tptStartupWaitTime, tptFilePath);
+        new CleanUpTask(build, cleanUpCallable, launcher);
+      }
+    }
+    logger.info("Get test cases of " + resolvedConfigs.size() + " execution configurations from "
+        + tptFiles.size() + " TPT files via TPT API.");
+    List<GetTestCasesCallableResult> results =
+        tptApiAccess.getTestCases(workspace, resolvedConfigs);
+    if (results == null) {
+      return;
+    }
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i) != null) {
+        enumeratedTestCases.put(unresolvedConfigs.get(i), results.get(i));
+      }
+    }
+  }
+
+  /**
+   * Resolves $-vars in paths, test set and execution config names
+   */
+  private JenkinsConfiguration resolve(JenkinsConfiguration unresolvedConfig)
+      throws InterruptedException {
+    if (build instanceof AbstractBuild) {
+      return unresolvedConfig.replaceAndNormalize(
+          Utils.getEnvironment((AbstractBuild< ? , ? >)build, launcher, logger));
+    }
+    return unresolvedConfig;
+  }
+
   /**
    * This method collects all testcases that are supposed to be executed via the TPT API, divides
    * them into different workloads and calls the worker jobs to execute these. Then it collects
@@ -191,31 +384,49 @@ class TptPluginDistributingJobExecutor {
    */
   private boolean executeOneConfig(JenkinsConfiguration unresolvedConfig, TptApiAccess tptApiAccess)
       throws InterruptedException {
-    boolean success = true;
     if (!unresolvedConfig.isEnableTest()) {
       return true;
     }
-    // Resolve $-vars in paths, test set and execution config names
-    JenkinsConfiguration resolvedConfig = unresolvedConfig;
-    if (build instanceof AbstractBuild) {
-      resolvedConfig = unresolvedConfig.replaceAndNormalize(
-          Utils.getEnvironment((AbstractBuild< ? , ? >)build, launcher, logger));
-    }
+    ConfigExecution configExecution = scheduleConfig(unresolvedConfig, tptApiAccess);
+    return configExecution != null && finishConfig(configExecution, tptApiAccess);
+  }
+
+  /**
+   * Collects all testcases that are supposed to be executed via the TPT API, divides them into
+   * different workloads and schedules the worker jobs to execute these.
+   * 
+   * @return the scheduled worker jobs or <code>null</code> if the execution configuration could not
+   *         be scheduled
+   */
+  private ConfigExecution scheduleConfig(JenkinsConfiguration unresolvedConfig,
+                                         TptApiAccess tptApiAccess)
+      throws InterruptedException {
+    JenkinsConfiguration resolvedConfig = resolve(unresolvedConfig);
     if (!(build instanceof AbstractBuild)) {
       // We cannot check all IDs beforehand for pipeline jobs so do it here
       if (!Utils.checkId(resolvedConfig, build, logger)) {
-        return false;
+        return null;
       }
     }
     // Get necessery paths the user added in the job configuration:
     GetTestCasesCallableResult testCases = null;
     if (workspace == null) {
       logger.error("No workspace available");
-      return false;
+      return null;
     }
     FilePath testDataPath = new FilePath(workspace, Utils.getGeneratedTestDataDir(resolvedConfig));
     FilePath reportPath = new FilePath(workspace, Utils.getGeneratedReportDir(resolvedConfig));
     FilePath tptFilePath = new FilePath(workspace, resolvedConfig.getTptFile());
+    // The test data directory still contains the results of the previous run. Read the durations
+    // before cleaning it.
+    Map<String, Long> durations = Collections.emptyMap();
+    if ((balanceByDuration && (workerJobCount >= 1 || workerBatchSize >= 1))
+        || autoWorkerJobCount) {
+      logger.info("Read test case durations of previous run from \"" + testDataPath.getRemote()
+          + "\"");
+      durations = ShardPlanner.readDurations(testDataPath, logger);
+      logger.info("Found durations for " + durations.size() + " test cases.");
+    }
     try {
       logger.info("Create and/or clean test data directory \"" + testDataPath.getRemote() + "\"");
       testDataPath.mkdirs();
@@ -225,39 +436,28 @@ class TptPluginDistributingJobExecutor {
       reportPath.deleteContents();
     } catch (IOException e) {
       logger.error("Could not create or clear directories: " + e.getMessage());
-      return false;
+      return null;
     }
-    // Register cleanup task that is called in the end to close remote TPT Project
-    CleanUpCallable cleanUpCallable = new CleanUpCallable(listener, "localhost", tptPort,
-        tptBindingName, exePaths, tptStartupWaitTime, tptFilePath);
-    new CleanUpTask(build, cleanUpCallable, launcher);
-    // Get the list of testcases via the TPT API
-    testCases = tptApiAccess.getTestCases(tptFilePath, resolvedConfig.getConfiguration(),
-        resolvedConfig.getTestSet());
+    testCases = enumeratedTestCases.remove(unresolvedConfig);
     if (testCases == null) {
-      logger.error("Unable to get test cases via TPT API.");
-      return false;
+      // Register cleanup task that is called in the end to close remote TPT Project
+      CleanUpCallable cleanUpCallable = new CleanUpCallable(listener, "localhost", tptPort,
+          tptBindingName, exePaths, tptStartupWaitTime, tptFilePath);
+      new CleanUpTask(build, cleanUpCallable, launcher);
+      // Get the list of testcases via the TPT API
+      testCases = tptApiAccess.getTestCases(tptFilePath, resolvedConfig.getConfiguration(),
+          resolvedConfig.getTestSet());
     }
-    // Divide testcases into Workloads for the worker jobs to execute
-    ArrayList<RetryableJob> retryableJobs = new ArrayList<>();
-    // create test sets for worker jobs
-    int workerJobSize;
-    int remainer;
-    if (workerJobCount >= 1) {
-      workerJobSize = testCases.testCases.size() / workerJobCount;
-      remainer = testCases.testCases.size() % workerJobCount;
-    } else {
-      workerJobSize = 1;
-      remainer = 0;
+    if (testCases == null) {
+      logger.error("Unable to get test cases via TPT API.");
+      return null;
     }
-    ArrayList<List<String>> subTestSets =
-        getSubTestSets(testCases.testCases, workerJobSize, remainer);
-    // start one job for every test set
+    // find the worker job
     Job workerJob = null;
     Jenkins jenkinsInstance = Jenkins.getInstanceOrNull();
     if (jenkinsInstance == null) {
       logger.error("No jenkins instance found");
-      return false;
+      return null;
     }
     for (Job j : jenkinsInstance.getAllItems(Job.class)) {
       if (j.getName().equals(workerJobName)) {
@@ -266,41 +466,348 @@ class TptPluginDistributingJobExecutor {
     }
     if (workerJob == null) {
       logger.error("Worker job \"" + workerJobName + "\" not found");
-      return false;
+      return null;
 
     }
-    for (List<String> subTestSet : subTestSets) {
-      logger.info("Create job for \"" + subTestSet + "\"");
-
+    int shardCount = workerJobCount;
+    if (autoWorkerJobCount) {
+      shardCount = planWorkerJobCount(workerJob, testCases.testCases, durations);
+      if (workerBatchSize < 1) {
+        // the test cases of a fixed work package cannot be handed to a later worker job
+        logger.info("The worker jobs execute fixed work packages. Executors that become idle"
+            + " later are not used. Set a worker batch size to use them.");
+      }
+    }
+    // Divide testcases into Workloads for the worker jobs to execute
+    ArrayList<RetryableJob> retryableJobs = new ArrayList<>();
+    Map<RetryableJob, WorkLoad> workloads = new HashMap<>();
+    // create test sets for worker jobs
+    ArrayList<List<String>> subTestSets;
+    TestCasePool testCasePool = null;
+    if (workerBatchSize >= 1) {
+      // dynamic mode: all workers claim batches from one pool, longest test cases first
+      testCasePool = new TestCasePool(ShardPlanner.sortByDuration(testCases.testCases, durations,
+          defaultTestCaseDuration), workerJobTries);
+      int batchCount = (testCases.testCases.size() + workerBatchSize - 1) / workerBatchSize;
+      int workerCount = shardCount >= 1 ? Math.min(shardCount, batchCount) : batchCount;
+      subTestSets = new ArrayList<>();
+      for (int i = 0; i < workerCount; i++) {
+        subTestSets.add(Collections.<String> emptyList());
+      }
+    } else if (balanceByDuration && shardCount >= 1) {
+      subTestSets = ShardPlanner.partitionByDuration(testCases.testCases, durations,
+          defaultTestCaseDuration, shardCount);
+    } else {
+      int workerJobSize;
+      int remainer;
+      if (shardCount >= 1) {
+        workerJobSize = testCases.testCases.size() / shardCount;
+        remainer = testCases.testCases.size() % shardCount;
+      } else {
+        workerJobSize = 1;
+        remainer = 0;
+      }
+      subTestSets = getSubTestSets(testCases.testCases, workerJobSize, remainer);
+    }
+    // With speculative execution a work package may be executed twice at the same time. So every
+    // worker job copies its results into its own directories and only the results of the winner
+    // are copied to the test data and report directory when all worker jobs are done.
+    boolean staged = isStaged(testCasePool);
+    if (staged) {
+      try {
+        getStagingDir(resolvedConfig).deleteRecursive();
+      } catch (IOException e) {
+        logger.error("Could not clear directory for speculative execution: " + e.getMessage());
+        return null;
+      }
+    }
+    // start one job for every test set
+    for (int i = 0; i < subTestSets.size(); i++) {
+      List<String> subTestSet = subTestSets.get(i);
       // creates the workloads for the worker jobs, with the smaller chunks of testsets
-      WorkLoad workloadToAdd =
-          new WorkLoad(unresolvedConfig, subTestSet, workspace, build, testDataPath, reportPath);
+      WorkLoad workloadToAdd;
+      if (staged) {
+        logger.info("Create job for \"" + subTestSet + "\"");
+        FilePath stagingDir = getStagingDir(resolvedConfig).child(Integer.toString(i));
+        workloadToAdd = new WorkLoad(unresolvedConfig, subTestSet, workspace, build,
+            stagingDir.child("testdata"), stagingDir.child("report"));
+      } else if (testCasePool == null) {
+        logger.info("Create job for \"" + subTestSet + "\"");
+        workloadToAdd =
+            new WorkLoad(unresolvedConfig, subTestSet, workspace, build, testDataPath, reportPath);
+      } else {
+        logger.info("Create job claiming batches of " + workerBatchSize + " test cases");
+        workloadToAdd = new WorkLoad(unresolvedConfig, testCasePool, workerBatchSize, workspace,
+            build, testDataPath, reportPath);
+      }
+      workloadToAdd.setReportResults(isFailFastEnabled());
       // it adds the workloads to an static HashMap.
       WorkLoad.putWorkLoad(workerJobName, workloadToAdd);
       // Creates a retryable job , there are the builds scheduled. So the logic is : We put a
       // workload in a static HashMap and then we trigger a build for a worker job. In that way we
       // are distributing the builds on the worker jobs.
-      RetryableJob retryableJob = new RetryableJob(workerJobTries, logger, workerJob);
-      retryableJob.perform(build, listener);
+      RetryableJob retryableJob =
+          new RetryableJob(workerJobTries, logger, workerJob, workerJobTimeout);
+      retryableJob.perform(build);
       retryableJobs.add(retryableJob);
+      workloads.put(retryableJob, workloadToAdd);
     }
-    logger.info("Waiting for completion of child jobs.");
+    return new ConfigExecution(unresolvedConfig, resolvedConfig, testCases, testDataPath,
+        reportPath, tptFilePath, testCasePool, workerJob, retryableJobs, workloads);
+  }
+
+  /**
+   * Chooses the number of worker jobs from the idle executors available for the worker job, the
+   * estimated duration of the test cases and the worker job overhead measured in the previous
+   * build.
+   */
+  private int planWorkerJobCount(Job workerJob, Collection<String> testCases,
+                                 Map<String, Long> durations) {
+    int idleExecutors = countIdleExecutors(workerJob);
+    long overhead = getMeasuredWorkerJobOverhead();
+    int count = ShardPlanner.planWorkerCount(testCases, durations, defaultTestCaseDuration,
+        idleExecutors, overhead);
+    logger.info("Using " + count + " worker jobs for " + testCases.size() + " test cases ("
+        + idleExecutors + " idle executors, estimated worker job overhead " + (overhead / 1000)
+        + " s).");
+    return count;
+  }
+
+  /**
+   * @return the number of idle executors of the online nodes the worker job can run on
+   */
+  private static int countIdleExecutors(Job workerJob) {
+    Label label = workerJob instanceof AbstractProject
+        ? ((AbstractProject< ? , ? >)workerJob).getAssignedLabel() : null;
+    if (label != null) {
+      return label.getIdleExecutors();
+    }
+    Jenkins jenkinsInstance = Jenkins.getInstanceOrNull();
+    if (jenkinsInstance == null) {
+      return 0;
+    }
+    int idleExecutors = 0;
+    for (Computer computer : jenkinsInstance.getComputers()) {
+      if (computer.isOnline() && computer.isAcceptingTasks()) {
+        idleExecutors += computer.countIdle();
+      }
+    }
+    return idleExecutors;
+  }
+
+  /**
+   * @return the worker job overhead measured in the last completed build or the TPT startup wait
+   *         time if there is no measurement
+   */
+  private long getMeasuredWorkerJobOverhead() {
+    Run< ? , ? > previousBuild = build.getPreviousCompletedBuild();
+    InvisibleActionWorkerJobOverhead action = previousBuild == null ? null
+        : previousBuild.getAction(InvisibleActionWorkerJobOverhead.class);
+    return action == null ? tptStartupWaitTime : action.getOverhead();
+  }
+
+  /**
+   * Stores the average time the worker jobs did not spend executing test cases, e.g. for waiting
+   * in the queue, starting TPT and copying results. It is used to plan the number of worker jobs of
+   * the next build.
+   */
+  private void measureWorkerJobOverhead(ConfigExecution configExecution)
+      throws InterruptedException {
+    List<RetryableJob> retryableJobs = configExecution.retryableJobs;
+    if (retryableJobs.isEmpty()) {
+      return;
+    }
+    long totalRuntime = 0;
     for (RetryableJob retryableJob : retryableJobs) {
-      try {
-        retryableJob.join();
-        Result result = retryableJob.getResult();
+      totalRuntime += retryableJob.getRuntime();
+    }
+    long totalDuration = 0;
+    for (long duration : ShardPlanner.readDurations(configExecution.testDataPath, logger)
+        .values()) {
+      totalDuration += duration;
+    }
+    long overhead = Math.max(0, (totalRuntime - totalDuration) / retryableJobs.size());
+    logger.info("Measured worker job overhead: " + (overhead / 1000) + " s");
+    build.addOrReplaceAction(new InvisibleActionWorkerJobOverhead(overhead));
+  }
+
+  /**
+   * Schedules additional worker jobs for the test case pool if executors became idle after all
+   * worker jobs have started. Worker jobs executing fixed work packages are never added, their
+   * number is only chosen when they are scheduled.
+   */
+  private void addWorkerJobs(ConfigExecution configExecution) {
+    TestCasePool testCasePool = configExecution.testCasePool;
+    if (!autoWorkerJobCount || testCasePool == null
+        || WorkLoad.hasWorkLoad(workerJobName, build)) {
+      return;
+    }
+    int running = 0;
+    for (RetryableJob retryableJob : configExecution.retryableJobs) {
+      if (!retryableJob.isDone()) {
+        running++;
+      }
+    }
+    int pendingBatches = (testCasePool.size() + workerBatchSize - 1) / workerBatchSize;
+    int additionalWorkers =
+        Math.min(countIdleExecutors(configExecution.workerJob), pendingBatches - running);
+    for (int i = 0; i < additionalWorkers; i++) {
+      logger.info("Executor became available. Create additional job claiming batches of "
+          + workerBatchSize + " test cases");
+      WorkLoad workloadToAdd = new WorkLoad(configExecution.unresolvedConfig, testCasePool,
+          workerBatchSize, workspace, build, configExecution.testDataPath,
+          configExecution.reportPath);
+      workloadToAdd.setReportResults(isFailFastEnabled());
+      WorkLoad.putWorkLoad(workerJobName, workloadToAdd);
+      RetryableJob retryableJob =
+          new RetryableJob(workerJobTries, logger, configExecution.workerJob, workerJobTimeout);
+      retryableJob.perform(build);
+      configExecution.retryableJobs.add(retryableJob);
+      configExecution.workloads.put(retryableJob, workloadToAdd);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the worker jobs of the execution configuration have to be watched
+   *         while they are running
+   */
+  private boolean needsSupervision(ConfigExecution configExecution) {
+    return speculativeFactor > 0 || (autoWorkerJobCount && configExecution.testCasePool != null)
+        || isFailFastEnabled();
+  }
+
+  /**
+   * Reacts on the progress of the worker jobs of the execution configuration
+   */
+  private void supervise(ConfigExecution configExecution) throws InterruptedException {
+    checkFailFast(configExecution);
+    if (failedFast) {
+      return;
+    }
+    speculate(configExecution);
+    addWorkerJobs(configExecution);
+  }
+
+  private boolean isFailFastEnabled() {
+    return failFastExecutionErrors > 0 || failFastFailureRate > 0;
+  }
+
+  /**
+   * Sums up the results the worker jobs reported so far and cancels all worker jobs of the
+   * execution configuration if one of the fail fast thresholds is reached.
+   */
+  private void checkFailFast(ConfigExecution configExecution) {
+    if (!isFailFastEnabled() || failedFast) {
+      return;
+    }
+    List<RetryableJob> retryableJobs = new ArrayList<>(configExecution.retryableJobs);
+    retryableJobs.addAll(configExecution.duplicates.values());
+    int testCaseCount = 0;
+    int failedCount = 0;
+    int executionErrorCount = 0;
+    int missingResultCount = 0;
+    for (RetryableJob retryableJob : retryableJobs) {
+      Run< ? , ? > run = retryableJob.getCurrentRun();
+      InvisibleActionWorkerJobResult workerJobResult =
+          run == null ? null : run.getAction(InvisibleActionWorkerJobResult.class);
+      if (workerJobResult != null) {
+        testCaseCount += workerJobResult.getTestCaseCount();
+        failedCount += workerJobResult.getFailedCount();
+        executionErrorCount += workerJobResult.getExecutionErrorCount();
+        missingResultCount += workerJobResult.getMissingResultCount();
+      }
+    }
+    // test cases without result may have been skipped on purpose, e.g. by test set conditions
+    int resultCount = testCaseCount - missingResultCount;
+    if (resultCount <= 0) {
+      return;
+    }
+    double failureRate = 100.0 * (failedCount + executionErrorCount) / resultCount;
+    if (failFastExecutionErrors > 0 && executionErrorCount >= failFastExecutionErrors) {
+      logger.error("Worker jobs reported " + executionErrorCount
+          + " test cases with an execution error. Canceling remaining worker jobs.");
+    } else if (failFastFailureRate > 0 && failureRate >= failFastFailureRate) {
+      logger.error("Worker jobs reported " + (failedCount + executionErrorCount) + " of "
+          + resultCount + " test cases as failed. Canceling remaining worker jobs.");
+    } else {
+      return;
+    }
+    failedFast = true;
+    configExecution.cancel();
+  }
+
+  /**
+   * Waits for the worker jobs of an execution configuration, builds the overview report and
+   * publishes the results.
+   * 
+   * @return <code>true</code> if the execution from worker jobs and distributing job were
+   *         successful.
+   */
+  private boolean finishConfig(ConfigExecution configExecution, TptApiAccess tptApiAccess)
+      throws InterruptedException {
+    boolean success = true;
+    JenkinsConfiguration resolvedConfig = configExecution.resolvedConfig;
+    GetTestCasesCallableResult testCases = configExecution.testCases;
+    FilePath testDataPath = configExecution.testDataPath;
+    FilePath reportPath = configExecution.reportPath;
+    FilePath tptFilePath = configExecution.tptFilePath;
+    TestCasePool testCasePool = configExecution.testCasePool;
+    logger.info("Waiting for completion of child jobs.");
+    try {
+      while (needsSupervision(configExecution) && !configExecution.getCompletion().isDone()) {
+        supervise(configExecution);
+        try {
+          configExecution.getCompletion().get(SUPERVISION_INTERVAL, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+          // check again
+        }
+      }
+      if (failedFast) {
+        logger.error("Execution configuration \"" + resolvedConfig.getConfiguration()
+            + "\" failed fast. Skipping overview report.");
+        return false;
+      }
+      if (isStaged(testCasePool)) {
+        copyWinnerResults(configExecution);
+      }
+      for (RetryableJob retryableJob : configExecution.retryableJobs) {
+        RetryableJob duplicate = configExecution.duplicates.get(retryableJob);
+        Result result;
+        if (duplicate == null) {
+          retryableJob.join();
+          result = retryableJob.getResult();
+        } else {
+          // the loser was canceled, so only one of both has to be successful
+          result = isSuccessful(retryableJob) ? retryableJob.getResult() : duplicate.getResult();
+        }
         if (result != null && result.isWorseThan(Result.UNSTABLE)) {
           success = false;
           logger.error("Child job failed.");
         }
-      } catch (InterruptedException e) {
-        logger.info("Stopping worker jobs.");
-        logger.interrupt(e.getMessage());
-        for (RetryableJob retryableJobToCancle : retryableJobs) {
-          retryableJobToCancle.cancel();
-        }
-        throw e;
       }
+    } catch (InterruptedException e) {
+      logger.info("Stopping worker jobs.");
+      logger.interrupt(e.getMessage());
+      configExecution.cancel();
+      throw e;
+    } finally {
+      // also if the execution configuration failed fast or was interrupted
+      if (isStaged(testCasePool)) {
+        deleteStagingDir(resolvedConfig);
+      }
+    }
+    if (autoWorkerJobCount) {
+      measureWorkerJobOverhead(configExecution);
+    }
+    if (testCasePool != null && testCasePool.size() > 0) {
+      success = false;
+      logger.error(testCasePool.size() + " test cases were not executed by any worker job: "
+          + testCasePool.getPendingTestCases());
+    }
+    if (testCasePool != null && !testCasePool.getGivenUpTestCases().isEmpty()) {
+      success = false;
+      logger.error("Gave up on test cases that failed " + workerJobTries + " times: "
+          + testCasePool.getGivenUpTestCases());
     }
     // Build Overview report:
     logger.info("Building overview report.");
@@ -317,7 +824,8 @@ class TptPluginDistributingJobExecutor {
             jUnitXmlPath, jUnitLogLevel, logger);
         logger.info("*** Publishing finished ***");
       } else {
-        foundTestData = Publish.getTestcases(testDataPath, logger).testCases.size();
+        foundTestData =
+            Publish.getTestcases(testDataPath, logger, LogLevel.NONE).testCases.size();
       }
       if (foundTestData != testCases.testCaseCount) {
         // testCases.testCaseCount is some kind of maximal number of test cases that may have been
@@ -357,6 +865,75 @@ class TptPluginDistributingJobExecutor {
     return Utils.checkIdAndAddInvisibleActionTPTExecution(resolvedConfig, build, logger) & success;
   }
 
+  /**
+   * Schedules the worker jobs of all enabled execution configurations at once and finishes every
+   * execution configuration as soon as all of its worker jobs are done, so the worker jobs of the
+   * remaining execution configurations keep running while the overview report is built.
+   */
+  private boolean executeConfigsInParallel(TptApiAccess tptApiAccess)
+      throws InterruptedException {
+    boolean success = true;
+    List<ConfigExecution> pending = new ArrayList<>();
+    try {
+      for (JenkinsConfiguration ec : executionConfigs) {
+        if (!ec.isEnableTest()) {
+          continue;
+        }
+        ConfigExecution configExecution = scheduleConfig(ec, tptApiAccess);
+        if (configExecution == null) {
+          success = false;
+        } else {
+          pending.add(configExecution);
+        }
+      }
+      while (!pending.isEmpty()) {
+        CompletableFuture< ? >[] completions = new CompletableFuture< ? >[pending.size()];
+        for (int i = 0; i < completions.length; i++) {
+          completions[i] = pending.get(i).getCompletion();
+        }
+        try {
+          boolean supervised = false;
+          for (ConfigExecution configExecution : pending) {
+            if (needsSupervision(configExecution)) {
+              supervise(configExecution);
+              supervised = true;
+            }
+          }
+          if (failedFast) {
+            // cancel the worker jobs of the other execution configurations as well
+            for (ConfigExecution configExecution : pending) {
+              configExecution.cancel();
+            }
+          }
+          if (supervised) {
+            CompletableFuture.anyOf(completions).get(SUPERVISION_INTERVAL, TimeUnit.MILLISECONDS);
+          } else {
+            CompletableFuture.anyOf(completions).get();
+          }
+        } catch (ExecutionException | TimeoutException e) {
+          // the failure is reported when finishing the execution configuration
+        }
+        Iterator<ConfigExecution> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+          ConfigExecution configExecution = iterator.next();
+          if (configExecution.getCompletion().isDone()) {
+            iterator.remove();
+            logger.info("Worker jobs of execution configuration \""
+                + configExecution.resolvedConfig.getConfiguration() + "\" are done.");
+            success &= finishConfig(configExecution, tptApiAccess);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      logger.info("Stopping worker jobs.");
+      for (ConfigExecution configExecution : pending) {
+        configExecution.cancel();
+      }
+      throw e;
+    }
+    return success;
+  }
+
   private ArrayList<List<String>> getSubTestSets(Collection<String> testCases, int workerJobSize,
                                                  int remainer) {
     ArrayList<List<String>> testSets = new ArrayList<>();
@@ -383,4 +960,286 @@ class TptPluginDistributingJobExecutor {
     return testSets;
   }
 
+  /**
+   * Cancels the loser of every decided speculative execution and starts a speculative execution for
+   * every worker job that takes much longer than the finished ones once no workload is waiting
+   * for a worker anymore. The speculative execution only executes the test cases the worker job
+   * has no result for yet.
+   */
+  private void speculate(ConfigExecution configExecution) throws InterruptedException {
+    if (configExecution.testCasePool != null) {
+      // the worker jobs claim the test cases of slow workers anyway
+      return;
+    }
+    List<Long> finishedRuntimes = new ArrayList<>();
+    List<RetryableJob> running = new ArrayList<>();
+    for (RetryableJob retryableJob : configExecution.retryableJobs) {
+      RetryableJob duplicate = configExecution.duplicates.get(retryableJob);
+      if (duplicate != null) {
+        // first successful finisher wins
+        RetryableJob loser = isSuccessful(retryableJob) ? duplicate
+            : isSuccessful(duplicate) ? retryableJob : null;
+        if (loser != null && !loser.isDone() && !loser.isCancelled()) {
+          logger.info("Speculative execution of test cases "
+              + configExecution.workloads.get(retryableJob).getTestCases()
+              + " finished. Canceling the slower worker job.");
+          if (loser == retryableJob) {
+            // the speculative execution only has the results the original did not have yet
+            stageWorkerResults(configExecution, retryableJob);
+          }
+          loser.cancel();
+          WorkLoad.removeWorkLoads(workerJobName, build,
+              configExecution.workloads.get(retryableJob).getTestCases());
+        }
+      } else if (retryableJob.isDone()) {
+        finishedRuntimes.add(retryableJob.getRuntime());
+      } else {
+        running.add(retryableJob);
+      }
+    }
+    if (finishedRuntimes.isEmpty() || running.isEmpty()
+        || WorkLoad.hasWorkLoad(workerJobName, build)) {
+      return;
+    }
+    Collections.sort(finishedRuntimes);
+    long median = finishedRuntimes.get(finishedRuntimes.size() / 2);
+    for (RetryableJob retryableJob : running) {
+      if (retryableJob.getRuntime() > speculativeFactor * median) {
+        WorkLoad workload = configExecution.workloads.get(retryableJob);
+        List<String> unfinishedTestCases = getUnfinishedTestCases(configExecution, retryableJob);
+        if (unfinishedTestCases.isEmpty()) {
+          // nothing to gain, the worker job is about to finish
+          continue;
+        }
+        logger.info("Worker job for " + workload.getTestCases() + " is running for "
+            + (retryableJob.getRuntime() / 1000) + " s, the median is " + (median / 1000)
+            + " s. Starting speculative execution of the " + unfinishedTestCases.size()
+            + " test cases without result: " + unfinishedTestCases);
+        // the duplicate must not write into the directories of the original
+        FilePath stagingDir = getStagingDir(configExecution.resolvedConfig)
+            .child(configExecution.retryableJobs.indexOf(retryableJob) + "-speculative");
+        WorkLoad duplicateWorkload = new WorkLoad(workload.getJenkinsConfig(),
+            unfinishedTestCases, workload.getDistributingJobWorkspace(), build,
+            stagingDir.child("testdata"), stagingDir.child("report"));
+        duplicateWorkload.setReportResults(isFailFastEnabled());
+        WorkLoad.putWorkLoad(workerJobName, duplicateWorkload);
+        RetryableJob duplicate = new RetryableJob(1, logger, retryableJob.getWorkerJob(),
+            workerJobTimeout);
+        duplicate.perform(build);
+        configExecution.duplicates.put(retryableJob, duplicate);
+        configExecution.workloads.put(duplicate, duplicateWorkload);
+      }
+    }
+  }
+
+  /**
+   * @return the directory the worker job build executes the test cases in or <code>null</code> if
+   *         it is not known
+   */
+  private static FilePath getWorkerDir(Run< ? , ? > run, String dir) {
+    if (!(run instanceof AbstractBuild)) {
+      return null;
+    }
+    FilePath workerWorkspace = ((AbstractBuild< ? , ? >)run).getWorkspace();
+    return workerWorkspace == null ? null : new FilePath(workerWorkspace, dir);
+  }
+
+  /**
+   * Reads the results the running worker job build already produced.
+   * 
+   * @return the test cases of the worker job without a result or with an execution error. All test
+   *         cases of the worker job if the results could not be read.
+   */
+  private List<String> getUnfinishedTestCases(ConfigExecution configExecution,
+                                              RetryableJob retryableJob)
+      throws InterruptedException {
+    List<String> testCases = configExecution.workloads.get(retryableJob).getTestCases();
+    Run< ? , ? > run = retryableJob.getCurrentRun();
+    FilePath workerDataDir =
+        getWorkerDir(run, Utils.getGeneratedTestDataDir(configExecution.resolvedConfig));
+    if (workerDataDir == null) {
+      return testCases;
+    }
+    Map<String, TptResult> results;
+    try {
+      // ignore results of previous builds in the same workspace
+      long runtime = System.currentTimeMillis() - run.getStartTimeInMillis();
+      long modifiedSince = ShardPlanner.getCurrentTime(workerDataDir) - runtime;
+      results = ShardPlanner.readResults(workerDataDir, logger, testCases, modifiedSince);
+    } catch (IOException e) {
+      results = null;
+    }
+    if (results == null) {
+      return testCases;
+    }
+    return ShardPlanner.getTestCasesToRetry(results, testCases);
+  }
+
+  /**
+   * Copies the results a worker job build produced so far to its staging directories, so they are
+   * not lost when the build is canceled because its speculative execution won.
+   */
+  private void stageWorkerResults(ConfigExecution configExecution, RetryableJob retryableJob)
+      throws InterruptedException {
+    WorkLoad workload = configExecution.workloads.get(retryableJob);
+    Run< ? , ? > run = retryableJob.getCurrentRun();
+    FilePath workerDataDir =
+        getWorkerDir(run, Utils.getGeneratedTestDataDir(configExecution.resolvedConfig));
+    FilePath workerReportDir =
+        getWorkerDir(run, Utils.getGeneratedReportDir(configExecution.resolvedConfig));
+    try {
+      if (workerDataDir != null && workerDataDir.exists()) {
+        workerDataDir.copyRecursiveTo(workload.getDistributingJobDataDir());
+      }
+      if (workerReportDir != null && workerReportDir.exists()) {
+        workerReportDir.copyRecursiveTo(workload.getDistributingJobReportDir());
+      }
+    } catch (IOException e) {
+      logger.error("Could not copy the results of test cases " + workload.getTestCases() + ": "
+          + e.getMessage());
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the worker jobs copy their results into own directories because
+   *         they might be executed speculatively
+   */
+  private boolean isStaged(TestCasePool testCasePool) {
+    return speculativeFactor > 0 && testCasePool == null;
+  }
+
+  /**
+   * @return the directory in the workspace that contains the result directories of the worker jobs
+   *         if they might be executed speculatively
+   */
+  private FilePath getStagingDir(JenkinsConfiguration resolvedConfig) {
+    return new FilePath(workspace,
+        "Piketec" + File.separator + resolvedConfig.getId() + File.separator + "speculative");
+  }
+
+  /**
+   * Copies the results of every work package to the test data and report directory of the
+   * execution configuration. If the speculative execution of a work package won, its results are
+   * copied on top of the results the original produced until it was canceled.
+   */
+  private void copyWinnerResults(ConfigExecution configExecution) throws InterruptedException {
+    for (RetryableJob retryableJob : configExecution.retryableJobs) {
+      copyStagedResults(configExecution, configExecution.workloads.get(retryableJob));
+      RetryableJob duplicate = configExecution.duplicates.get(retryableJob);
+      if (duplicate != null && !isSuccessful(retryableJob) && isSuccessful(duplicate)) {
+        copyStagedResults(configExecution, configExecution.workloads.get(duplicate));
+      }
+    }
+  }
+
+  private void copyStagedResults(ConfigExecution configExecution, WorkLoad workload)
+      throws InterruptedException {
+    try {
+      FilePath dataDir = workload.getDistributingJobDataDir();
+      if (dataDir.exists()) {
+        dataDir.copyRecursiveTo(configExecution.testDataPath);
+      }
+      FilePath reportDir = workload.getDistributingJobReportDir();
+      if (reportDir.exists()) {
+        reportDir.copyRecursiveTo(configExecution.reportPath);
+      }
+    } catch (IOException e) {
+      logger.error("Could not copy the results of test cases " + workload.getTestCases() + ": "
+          + e.getMessage());
+    }
+  }
+
+  /**
+   * Deletes the result directories of the worker jobs and their speculative executions
+   */
+  private void deleteStagingDir(JenkinsConfiguration resolvedConfig) {
+    try {
+      getStagingDir(resolvedConfig).deleteRecursive();
+    } catch (IOException e) {
+      logger.warn("Could not delete directory for speculative execution: " + e.getMessage());
+    } catch (InterruptedException e) {
+      logger.warn("Could not delete directory for speculative execution: " + e.getMessage());
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static boolean isSuccessful(RetryableJob retryableJob) {
+    Result result = retryableJob.getResult();
+    return retryableJob.isDone() && result != null && result.isBetterOrEqualTo(Result.UNSTABLE);
+  }
+
+  /**
+   * An execution configuration whose worker jobs have been scheduled
+   */
+  private static class ConfigExecution {
+
+    private final JenkinsConfiguration unresolvedConfig;
+
+    private final JenkinsConfiguration resolvedConfig;
+
+    private final GetTestCasesCallableResult testCases;
+
+    private final FilePath testDataPath;
+
+    private final FilePath reportPath;
+
+    private final FilePath tptFilePath;
+
+    private final TestCasePool testCasePool;
+
+    private final Job workerJob;
+
+    private final List<RetryableJob> retryableJobs;
+
+    private final Map<RetryableJob, WorkLoad> workloads;
+
+    /**
+     * speculative executions by the worker job they duplicate
+     */
+    private final Map<RetryableJob, RetryableJob> duplicates = new HashMap<>();
+
+    ConfigExecution(JenkinsConfiguration unresolvedConfig, JenkinsConfiguration resolvedConfig,
+                    GetTestCasesCallableResult testCases,
+                    FilePath testDataPath, FilePath reportPath, FilePath tptFilePath,
+                    TestCasePool testCasePool, Job workerJob, List<RetryableJob> retryableJobs,
+                    Map<RetryableJob, WorkLoad> workloads) {
+      this.unresolvedConfig = unresolvedConfig;
+      this.resolvedConfig = resolvedConfig;
+      this.testCases = testCases;
+      this.testDataPath = testDataPath;
+      this.reportPath = reportPath;
+      this.tptFilePath = tptFilePath;
+      this.testCasePool = testCasePool;
+      this.workerJob = workerJob;
+      this.retryableJobs = retryableJobs;
+      this.workloads = workloads;
+    }
+
+    /**
+     * @return a future that is completed when all worker jobs are done
+     */
+    CompletableFuture<Void> getCompletion() {
+      List<CompletableFuture<Result>> completions = new ArrayList<>();
+      for (RetryableJob retryableJob : retryableJobs) {
+        completions.add(retryableJob.getCompletion());
+      }
+      for (RetryableJob duplicate : duplicates.values()) {
+        completions.add(duplicate.getCompletion());
+      }
+      return CompletableFuture.allOf(completions.toArray(new CompletableFuture< ? >[0]));
+    }
+
+    /**
+     * Cancels all worker jobs
+     */
+    void cancel() {
+      for (RetryableJob retryableJob : retryableJobs) {
+        retryableJob.cancel();
+      }
+      for (RetryableJob duplicate : duplicates.values()) {
+        duplicate.cancel();
+      }
+    }
+  }
+
 }
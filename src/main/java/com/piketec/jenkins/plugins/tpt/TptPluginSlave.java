@@ -31,6 +31,7 @@ import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
 import com.piketec.jenkins.plugins.tpt.Configuration.JenkinsConfiguration;
+import com.piketec.jenkins.plugins.tpt.api.callables.TptProcessPoolConfig;
 
 import hudson.AbortException;
 import hudson.EnvVars;
@@ -39,6 +40,7 @@ import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Util;
 import hudson.model.AbstractProject;
+import hudson.model.Computer;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.tasks.BuildStepDescriptor;
@@ -51,6 +53,11 @@ import jenkins.tasks.SimpleBuildStep;
  */
 public class TptPluginSlave extends Builder implements SimpleBuildStep {
 
+  /**
+   * The interval in milliseconds a build checks for a free TPT port if all ports are in use
+   */
+  private static final long PORT_POLL_INTERVAL = 5000;
+
   private String exePaths;
 
   @CheckForNull
@@ -62,6 +69,20 @@ public class TptPluginSlave extends Builder implements SimpleBuildStep {
 
   private String tptStartUpWaitTime;
 
+  @CheckForNull
+  private String tptPoolSize = null;
+
+  @CheckForNull
+  private String tptIdleTimeout = null;
+
+  @CheckForNull
+  private String tptMaxLifetime = null;
+
+  private boolean useAvailableCores = DescriptorImpl.getDefaultUseAvailableCores();
+
+  @CheckForNull
+  private String reservedCores = null;
+
   // ----------- Data Binding --------------
 
   /**
@@ -151,6 +172,98 @@ public class TptPluginSlave extends Builder implements SimpleBuildStep {
             : tptStartUpWaitTime;
   }
 
+  /**
+   * @return The maximal number of TPT instances kept alive on an agent between builds. A value
+   *         less or equal zero means no limit.
+   */
+  public String getTptPoolSize() {
+    return tptPoolSize == null ? DescriptorImpl.getDefaultTptPoolSize() : tptPoolSize;
+  }
+
+  /**
+   * @param tptPoolSize
+   *          The maximal number of TPT instances kept alive on an agent between builds. A value
+   *          less or equal zero means no limit.
+   */
+  @DataBoundSetter
+  public void setTptPoolSize(String tptPoolSize) {
+    this.tptPoolSize =
+        DescriptorImpl.getDefaultTptPoolSize().equals(tptPoolSize) ? null : tptPoolSize;
+  }
+
+  /**
+   * @return The time in minutes after which an unused TPT instance is closed. A value less or
+   *         equal zero means unused TPT instances are kept alive.
+   */
+  public String getTptIdleTimeout() {
+    return tptIdleTimeout == null ? DescriptorImpl.getDefaultTptIdleTimeout() : tptIdleTimeout;
+  }
+
+  /**
+   * @param tptIdleTimeout
+   *          The time in minutes after which an unused TPT instance is closed. A value less or
+   *          equal zero means unused TPT instances are kept alive.
+   */
+  @DataBoundSetter
+  public void setTptIdleTimeout(String tptIdleTimeout) {
+    this.tptIdleTimeout =
+        DescriptorImpl.getDefaultTptIdleTimeout().equals(tptIdleTimeout) ? null : tptIdleTimeout;
+  }
+
+  /**
+   * @return The time in minutes after which a TPT instance is restarted as soon as it is unused. A
+   *         value less or equal zero means no limit.
+   */
+  public String getTptMaxLifetime() {
+    return tptMaxLifetime == null ? DescriptorImpl.getDefaultTptMaxLifetime() : tptMaxLifetime;
+  }
+
+  /**
+   * @param tptMaxLifetime
+   *          The time in minutes after which a TPT instance is restarted as soon as it is unused.
+   *          A value less or equal zero means no limit.
+   */
+  @DataBoundSetter
+  public void setTptMaxLifetime(String tptMaxLifetime) {
+    this.tptMaxLifetime =
+        DescriptorImpl.getDefaultTptMaxLifetime().equals(tptMaxLifetime) ? null : tptMaxLifetime;
+  }
+
+  /**
+   * @return if the number of cores of the execution configuration should be set to the number of
+   *         processors available on the agent
+   */
+  public boolean isUseAvailableCores() {
+    return useAvailableCores;
+  }
+
+  /**
+   * @param useAvailableCores
+   *          if the number of cores of the execution configuration should be set to the number of
+   *          processors available on the agent
+   */
+  @DataBoundSetter
+  public void setUseAvailableCores(boolean useAvailableCores) {
+    this.useAvailableCores = useAvailableCores;
+  }
+
+  /**
+   * @return The number of processors of the agent not used for the test execution
+   */
+  public String getReservedCores() {
+    return reservedCores == null ? DescriptorImpl.getDefaultReservedCores() : reservedCores;
+  }
+
+  /**
+   * @param reservedCores
+   *          The number of processors of the agent not used for the test execution
+   */
+  @DataBoundSetter
+  public void setReservedCores(String reservedCores) {
+    this.reservedCores =
+        DescriptorImpl.getDefaultReservedCores().equals(reservedCores) ? null : reservedCores;
+  }
+
   // --------------------------------------------------------------
 
   /**
@@ -179,17 +292,26 @@ public class TptPluginSlave extends Builder implements SimpleBuildStep {
           new FilePath(workspace, expand(environment, expandedStringExePaths[i].trim()));
     }
     String expandedArguments = environment.expand(getArguments());
-    int expandedTptPort;
+    int firstTptPort;
+    int lastTptPort;
     if (tptPort != null && !tptPort.isEmpty()) {
       try {
-        expandedTptPort = Integer.parseInt(expand(environment, tptPort));
+        // a range of ports is given as "first-last"
+        String[] range = expand(environment, tptPort).split("-", 2);
+        firstTptPort = Integer.parseInt(range[0].trim());
+        lastTptPort = range.length > 1 ? Integer.parseInt(range[1].trim()) : firstTptPort;
+        if (lastTptPort < firstTptPort) {
+          throw new NumberFormatException();
+        }
       } catch (NumberFormatException e) {
-        logger.error("The given port " + expand(environment, tptPort) + " is not an integer."
-            + " Using default value.");
-        expandedTptPort = Utils.DEFAULT_TPT_PORT;
+        logger.error("The given port " + expand(environment, tptPort)
+            + " is not an integer or a range of integers. Using default value.");
+        firstTptPort = Utils.DEFAULT_TPT_PORT;
+        lastTptPort = Utils.DEFAULT_TPT_PORT;
       }
     } else {
-      expandedTptPort = Utils.DEFAULT_TPT_PORT;
+      firstTptPort = Utils.DEFAULT_TPT_PORT;
+      lastTptPort = Utils.DEFAULT_TPT_PORT;
     }
     String expandedTptBindingName;
     if (tptBindingName != null && !tptBindingName.isEmpty()) {
@@ -210,9 +332,96 @@ public class TptPluginSlave extends Builder implements SimpleBuildStep {
     } else {
       expandedTptStartupWaitTime = Utils.DEFAULT_STARTUP_WAIT_TIME * 1000;
     }
+    int expandedTptPoolSize = 0;
+    try {
+      expandedTptPoolSize = Integer.parseInt(expand(environment, getTptPoolSize()));
+    } catch (NumberFormatException e) {
+      logger.error("The given TPT pool size " + expand(environment, getTptPoolSize())
+          + " is not an integer. Using default value.");
+    }
+    long expandedTptIdleTimeout = 0;
+    try {
+      expandedTptIdleTimeout = Long.parseLong(expand(environment, getTptIdleTimeout())) * 60 * 1000;
+    } catch (NumberFormatException e) {
+      logger.error("The given TPT idle timeout " + expand(environment, getTptIdleTimeout())
+          + " is not an integer. Using default value.");
+    }
+    long expandedTptMaxLifetime = 0;
+    try {
+      expandedTptMaxLifetime = Long.parseLong(expand(environment, getTptMaxLifetime())) * 60 * 1000;
+    } catch (NumberFormatException e) {
+      logger.error("The given TPT maximal lifetime " + expand(environment, getTptMaxLifetime())
+          + " is not an integer. Using default value.");
+    }
+    Integer expandedReservedCores = null;
+    if (useAvailableCores) {
+      expandedReservedCores = 0;
+      try {
+        expandedReservedCores = Integer.parseInt(expand(environment, getReservedCores()));
+      } catch (NumberFormatException e) {
+        logger.error("The given number of reserved cores " + expand(environment, getReservedCores())
+            + " is not an integer. Using default value.");
+      }
+    }
+    // Every build running on the same node needs its own TPT instance
+    Computer computer = workspace.toComputer();
+    String nodeName = computer == null ? "" : computer.getName();
+    String holder = run.getFullDisplayName();
+    int claimedTptPort = -1;
+    try {
+      claimedTptPort = TptPortAllocator.claim(nodeName, firstTptPort, lastTptPort, holder);
+      if (claimedTptPort < 0) {
+        logger.info("All TPT ports from " + firstTptPort + " to " + lastTptPort
+            + " are used by other builds on this node. Waiting up to "
+            + (expandedTptStartupWaitTime / 1000) + " s for a free port.");
+        long deadline = System.currentTimeMillis() + expandedTptStartupWaitTime;
+        while (claimedTptPort < 0) {
+          if (System.currentTimeMillis() >= deadline) {
+            logger.error("No free TPT port from " + firstTptPort + " to " + lastTptPort
+                + " on this node. The ports are used by "
+                + TptPortAllocator.getHolders(nodeName, firstTptPort, lastTptPort)
+                + ". Extend the port range or reduce the number of executors of the node.");
+            throw new AbortException();
+          }
+          Thread.sleep(PORT_POLL_INTERVAL);
+          claimedTptPort = TptPortAllocator.claim(nodeName, firstTptPort, lastTptPort, holder);
+        }
+      }
+      String claimedTptBindingName = claimedTptPort == firstTptPort ? expandedTptBindingName
+          : expandedTptBindingName + (claimedTptPort - firstTptPort);
+      if (lastTptPort > firstTptPort) {
+        logger.info("Using TPT port " + claimedTptPort + " and binding name \""
+            + claimedTptBindingName + "\"");
+      }
+      execute(run, workspace, launcher, listener, environment, logger, expandedExePaths,
+          expandedArguments, claimedTptPort, claimedTptBindingName, expandedTptStartupWaitTime,
+          new TptProcessPoolConfig(expandedTptPoolSize, expandedTptIdleTimeout,
+              expandedTptMaxLifetime),
+          expandedReservedCores);
+    } finally {
+      // also if the build was interrupted while waiting for a port or starting TPT
+      if (claimedTptPort >= 0) {
+        TptPortAllocator.release(nodeName, claimedTptPort);
+      }
+    }
+  }
 
+  /**
+   * Polls a workload for this worker job and executes it with the TPT instance claimed for this
+   * build.
+   */
+  private void execute(Run< ? , ? > run, FilePath workspace, Launcher launcher,
+                       TaskListener listener, EnvVars environment, TptLogger logger,
+                       FilePath[] expandedExePaths, String expandedArguments, int expandedTptPort,
+                       String expandedTptBindingName, long expandedTptStartupWaitTime,
+                       TptProcessPoolConfig processPoolConfig,
+                       @CheckForNull Integer expandedReservedCores)
+      throws InterruptedException, IOException {
     String jobName = run.getParent().getName();
-    WorkLoad workloadToDo = WorkLoad.pollWorkload(jobName);
+    InvisibleActionDistributingJob distributingJobAction =
+        run.getAction(InvisibleActionDistributingJob.class);
+    WorkLoad workloadToDo = distributingJobAction == null ? WorkLoad.pollWorkload(jobName)
+        : WorkLoad.pollWorkload(jobName, distributingJobAction.getDistributingJobRunId());
     if (workloadToDo == null) {
       logger.error("Nothing todo. No work package for \"" + jobName + "\" enqueued.");
       throw new AbortException();
@@ -232,7 +441,12 @@ public class TptPluginSlave extends Builder implements SimpleBuildStep {
     logger.info("Execution Configuration : " + resolvedConfig.getConfiguration());
     logger.info("Test Data directory :     " + resolvedConfig.getTestdataDir());
     logger.info("Report directory :        " + resolvedConfig.getReportDir());
-    logger.info("Test Cases :              " + testCasesFromWorkload);
+    if (workloadToDo.getTestCasePool() == null) {
+      logger.info("Test Cases :              " + testCasesFromWorkload);
+    } else {
+      logger.info("Test Cases :              claimed in batches of "
+          + workloadToDo.getBatchSize() + " from the distributing job");
+    }
     if (StringUtils.isNotEmpty(unresolvedConfig.getTestSet())) {
       logger.info("Test Set :                " + resolvedConfig.getTestSet());
     }
@@ -243,11 +457,20 @@ public class TptPluginSlave extends Builder implements SimpleBuildStep {
     TptPluginWorkerJobExecutor executor = new TptPluginWorkerJobExecutor(launcher, workspace,
         listener, expandedExePaths, expandedArguments, expandedTptPort, expandedTptBindingName,
         resolvedConfig, testCasesFromWorkload, expandedTptStartupWaitTime, distributingJobRun,
-        distributingJobWorkspace, distributingJobDataDir, distributingJobReportDir);
+        distributingJobWorkspace, distributingJobDataDir, distributingJobReportDir,
+        workloadToDo.getTestCasePool(), workloadToDo.getBatchSize(), run, processPoolConfig);
+    executor.setReservedCores(expandedReservedCores);
+    executor.setReportResults(workloadToDo.isReportResults());
 
     boolean result = executor.execute();
     if (!result) {
       // reenqueue for new try if job is configured to try multiple times
+      List<String> testCasesToRetry = executor.getTestCasesToRetry();
+      if (workloadToDo.getTestCasePool() == null && testCasesToRetry != null
+          && testCasesToRetry.size() < testCasesFromWorkload.size()) {
+        // only retry the test cases that did not succeed
+        workloadToDo = workloadToDo.withTestCases(testCasesToRetry);
+      }
       WorkLoad.putWorkLoad(jobName, workloadToDo);
       throw new AbortException();
     }
@@ -316,6 +539,41 @@ public class TptPluginSlave extends Builder implements SimpleBuildStep {
       return String.valueOf(Utils.DEFAULT_STARTUP_WAIT_TIME);
     }
 
+    /**
+     * @return "0" (no limit)
+     */
+    public static String getDefaultTptPoolSize() {
+      return "0";
+    }
+
+    /**
+     * @return "0" (keep unused TPT instances alive)
+     */
+    public static String getDefaultTptIdleTimeout() {
+      return "0";
+    }
+
+    /**
+     * @return "0" (no limit)
+     */
+    public static String getDefaultTptMaxLifetime() {
+      return "0";
+    }
+
+    /**
+     * @return false
+     */
+    public static boolean getDefaultUseAvailableCores() {
+      return false;
+    }
+
+    /**
+     * @return "0"
+     */
+    public static String getDefaultReservedCores() {
+      return "0";
+    }
+
   }
 
 }
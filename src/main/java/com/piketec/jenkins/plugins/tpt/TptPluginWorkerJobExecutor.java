@@ -22,9 +22,13 @@ package com.piketec.jenkins.plugins.tpt;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
 
 import com.piketec.jenkins.plugins.tpt.Configuration.JenkinsConfiguration;
 import com.piketec.jenkins.plugins.tpt.api.callables.CleanUpCallable;
+import com.piketec.jenkins.plugins.tpt.api.callables.TptProcessPoolConfig;
 
 import hudson.FilePath;
 import hudson.Launcher;
@@ -56,10 +60,33 @@ class TptPluginWorkerJobExecutor {
 
   private List<String> testSetList;
 
+  private TestCasePool testCasePool;
+
+  private int batchSize;
+
+  private List<String> testCasesToRetry;
+
+  private int executedTestCaseCount = 0;
+
+  private int failedTestCaseCount = 0;
+
+  private int executionErrorCount = 0;
+
+  private int missingResultCount = 0;
+
+  private boolean reportResults = false;
+
   private long tptStartupWaitTime;
 
   private Run< ? , ? > distributingJobRun;
 
+  private Run< ? , ? > workerJobRun;
+
+  private TptProcessPoolConfig processPoolConfig;
+
+  @CheckForNull
+  private Integer reservedCores = null;
+
   private FilePath distributingJobWorkspace;
 
   private FilePath distributingJobDataPath;
@@ -99,13 +126,25 @@ class TptPluginWorkerJobExecutor {
    *          the name of the test set if given
    * @param distributingJobWorkspace
    *          the workspace from the distributing job, to know where to copy the results
+   * @param testCasePool
+   *          the pool to claim batches of test cases from until it is empty or <code>null</code>
+   *          if the given test set should be executed
+   * @param batchSize
+   *          the number of test cases to claim at once from the test case pool
+   * @param workerJobRun
+   *          the build of this worker job, used to report the results to the distributing job
+   * @param processPoolConfig
+   *          the settings for the TPT instances kept alive on the agent between builds
    */
   TptPluginWorkerJobExecutor(Launcher launcher, FilePath workspace, TaskListener listener,
                              FilePath[] exePaths, String arguments, int tptPort,
                              String tptBindingName, JenkinsConfiguration jenkinsConfig,
                              List<String> testSet, long tptStartupWaitTime,
                              Run< ? , ? > distributingJobRun, FilePath distributingJobWorkspace,
-                             FilePath distributingJobDataPath, FilePath distributingJobReportPath) {
+                             FilePath distributingJobDataPath, FilePath distributingJobReportPath,
+                             TestCasePool testCasePool, int batchSize,
+                             Run< ? , ? > workerJobRun,
+                             TptProcessPoolConfig processPoolConfig) {
     this.logger = new TptLogger(listener.getLogger());
     this.launcher = launcher;
     this.workspace = workspace;
@@ -121,13 +160,20 @@ class TptPluginWorkerJobExecutor {
     this.distributingJobWorkspace = distributingJobWorkspace;
     this.distributingJobDataPath = distributingJobDataPath;
     this.distributingJobReportPath = distributingJobReportPath;
+    this.testCasePool = testCasePool;
+    this.batchSize = batchSize;
+    this.workerJobRun = workerJobRun;
+    this.processPoolConfig = processPoolConfig;
   }
 
   /**
    * Executes a small chunks of tests. It binds to the Tpt Api , check if the given Execution
    * Configuration exists. Prepares the test- and data-directories. Creates a temporary testSet from
    * the chunk of test (if no testSet is given). Then through the tpt api executes the testCases and
-   * then it copies the results to the distributing job's workspace.
+   * then it copies the results to the distributing job's workspace. If a test case pool is given,
+   * batches of test cases are claimed and executed until the pool is empty. The test cases of a
+   * batch without result are put back into the pool if the batch failed or its execution was
+   * aborted.
    * 
    * @return true if the tpt execution has been successfully.
    * @throws InterruptedException
@@ -136,6 +182,9 @@ class TptPluginWorkerJobExecutor {
   public boolean execute() throws InterruptedException {
     TptApiAccess tptApiAccess = new TptApiAccess(launcher, logger, exePaths,
         Utils.parseCommandLine(arguments), tptPort, tptBindingName, tptStartupWaitTime);
+    tptApiAccess.setProcessPoolConfig(processPoolConfig);
+    tptApiAccess.setStatisticsCollector(
+        TptRmiCallStatisticsAction.getOrCreate(workerJobRun).createCollector());
 
     if (workspace == null) {
       logger.error("No workspace available");
@@ -150,6 +199,44 @@ class TptPluginWorkerJobExecutor {
         tptBindingName, exePaths, tptStartupWaitTime, tptFilePath);
     new CleanUpTask(distributingJobRun, cleanUpCallable, launcher);
 
+    if (testCasePool == null) {
+      return execute(tptApiAccess, tptFilePath, workerReportPath, workerDataPath, testSetList);
+    }
+    while (true) {
+      List<String> batch = testCasePool.claim(batchSize);
+      if (batch.isEmpty()) {
+        logger.info("No test cases left to execute.");
+        return true;
+      }
+      logger.info("Claimed test cases " + batch + ", " + testCasePool.size()
+          + " test cases left in pool.");
+      boolean executed = false;
+      try {
+        executed = execute(tptApiAccess, tptFilePath, workerReportPath, workerDataPath, batch);
+      } finally {
+        // also on interruption or remoting failures, so other workers can execute them
+        if (!executed && testCasesToRetry != null) {
+          List<String> failedTooOften = testCasePool.giveBack(testCasesToRetry);
+          logger.info("Gave back " + (testCasesToRetry.size() - failedTooOften.size())
+              + " test cases to the pool.");
+          if (!failedTooOften.isEmpty()) {
+            logger.error("Test cases failed too often and are not executed again: "
+                + failedTooOften);
+          }
+        }
+      }
+      if (!executed) {
+        return false;
+      }
+    }
+  }
+
+  private boolean execute(TptApiAccess tptApiAccess, FilePath tptFilePath,
+                          FilePath workerReportPath, FilePath workerDataPath,
+                          List<String> testCases)
+      throws InterruptedException {
+    // until the results are known, all test cases have to be executed again on failure
+    testCasesToRetry = testCases;
     // Clean and setup the report and testdata directoires
     try {
       if (!distributingJobWorkspace.equals(workspace)) {
@@ -171,10 +258,19 @@ class TptPluginWorkerJobExecutor {
       return false;
     }
 
+    long executionStart;
+    try {
+      executionStart = ShardPlanner.getCurrentTime(workerDataPath);
+    } catch (IOException e) {
+      logger.error(e.getMessage());
+      return false;
+    }
     // Execute Tests on worker:
     boolean executionResult =
         tptApiAccess.executeTestsOnWorker(tptFilePath, jenkinsConfig.getConfiguration(),
-            jenkinsConfig.getTestSet(), workerReportPath, workerDataPath, testSetList);
+            jenkinsConfig.getTestSet(), workerReportPath, workerDataPath, testCases, reservedCores,
+            TptExecutionProgressAction.getOrCreate(distributingJobRun)
+                .createListener(workerJobRun.getFullDisplayName()));
 
     // Copy tpt-testresults back to distributing job, so the distributing job can build the report
     try {
@@ -185,6 +281,104 @@ class TptPluginWorkerJobExecutor {
     } catch (IOException e) {
       logger.error("could not copy results to distributing job: " + e.getMessage());
     }
+    if (!reportResults && executionResult) {
+      // nobody needs the results, so there is no need to parse them
+      testCasesToRetry = null;
+      return true;
+    }
+    Map<String, TptResult> results =
+        ShardPlanner.readResults(workerDataPath, logger, testCases, executionStart);
+    if (reportResults) {
+      countResults(results, testCases);
+    }
+    if (executionResult) {
+      testCasesToRetry = null;
+    } else {
+      List<String> failedTestCases = ShardPlanner.getTestCasesToRetry(results, testCases);
+      // if nothing was identified we are unable to tell which test cases failed
+      if (!failedTestCases.isEmpty()) {
+        testCasesToRetry = failedTestCases;
+        logger.info(testCasesToRetry.size() + " of " + testCases.size()
+            + " test cases have no result or an execution error: " + testCasesToRetry);
+      }
+    }
     return executionResult;
   }
+
+  /**
+   * Counts the results of the executed test cases and reports the counts of all executions so far
+   * to the distributing job, so it is able to stop early if too many test cases fail.
+   */
+  private void countResults(Map<String, TptResult> results, List<String> testCases) {
+    for (String testCase : testCases) {
+      TptResult result = results == null ? null : results.get(testCase);
+      executedTestCaseCount++;
+      if (result == null) {
+        // e.g. skipped by a test set condition, not necessarily an error
+        missingResultCount++;
+      } else if (result == TptResult.EXECUTION_ERROR) {
+        executionErrorCount++;
+      } else if (result == TptResult.FAILED) {
+        failedTestCaseCount++;
+      }
+    }
+    workerJobRun.addOrReplaceAction(new InvisibleActionWorkerJobResult(executedTestCaseCount,
+        failedTestCaseCount, executionErrorCount, missingResultCount));
+  }
+
+  /**
+   * @return the number of test cases this worker tried to execute
+   */
+  public int getExecutedTestCaseCount() {
+    return executedTestCaseCount;
+  }
+
+  /**
+   * @return the number of executed test cases that failed
+   */
+  public int getFailedTestCaseCount() {
+    return failedTestCaseCount;
+  }
+
+  /**
+   * @return the number of executed test cases with an execution error
+   */
+  public int getExecutionErrorCount() {
+    return executionErrorCount;
+  }
+
+  /**
+   * @return the number of executed test cases without result
+   */
+  public int getMissingResultCount() {
+    return missingResultCount;
+  }
+
+  /**
+   * @param reportResults
+   *          <code>true</code> to read the results after every execution and report the counts to
+   *          the distributing job, e.g. for fail fast. Otherwise the results are only read if an
+   *          execution failed, to determine the test cases to retry.
+   */
+  public void setReportResults(boolean reportResults) {
+    this.reportResults = reportResults;
+  }
+
+  /**
+   * @param reservedCores
+   *          the number of processors of the agent not used for the test execution or
+   *          <code>null</code> to keep the number of cores of the execution configuration
+   */
+  public void setReservedCores(@CheckForNull Integer reservedCores) {
+    this.reservedCores = reservedCores;
+  }
+
+  /**
+   * @return the test cases of the last failed execution that have no result or an execution error.
+   *         If this could not be determined, all test cases of the failed execution.
+   *         <code>null</code> if no execution failed.
+   */
+  public List<String> getTestCasesToRetry() {
+    return testCasesToRetry;
+  }
 }
@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the TPT ports used by the worker job builds running on a node, so that builds
+ * running at the same time on the same node use different TPT instances.
+ */
+final class TptPortAllocator {
+
+  /**
+   * the names of the builds holding the claimed ports by port and node name
+   */
+  private static final Map<String, Map<Integer, String>> claimedPorts = new HashMap<>();
+
+  private TptPortAllocator() {
+  }
+
+  /**
+   * Claims the lowest port of the given range that is not claimed by another build on the node
+   * 
+   * @param nodeName
+   *          The name of the node the build runs on
+   * @param firstPort
+   *          The first port of the range
+   * @param lastPort
+   *          The last port of the range
+   * @param holder
+   *          The name of the claiming build
+   * @return the claimed port or -1 if all ports of the range are claimed
+   */
+  static synchronized int claim(String nodeName, int firstPort, int lastPort, String holder) {
+    Map<Integer, String> ports = claimedPorts.computeIfAbsent(nodeName, k -> new HashMap<>());
+    for (int port = firstPort; port <= lastPort; port++) {
+      if (!ports.containsKey(port)) {
+        ports.put(port, holder);
+        return port;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param nodeName
+   *          The name of the node
+   * @param firstPort
+   *          The first port of the range
+   * @param lastPort
+   *          The last port of the range
+   * @return the claimed ports of the range and the names of the builds holding them
+   */
+  static synchronized List<String> getHolders(String nodeName, int firstPort, int lastPort) {
+    List<String> holders = new ArrayList<>();
+    Map<Integer, String> ports = claimedPorts.get(nodeName);
+    for (int port = firstPort; ports != null && port <= lastPort; port++) {
+      String holder = ports.get(port);
+      if (holder != null) {
+        holders.add(port + " (" + holder + ")");
+      }
+    }
+    return holders;
+  }
+
+  /**
+   * Releases a port claimed with {@link #claim(String, int, int, String)}
+   * 
+   * @param nodeName
+   *          The name of the node the build runs on
+   * @param port
+   *          The claimed port
+   */
+  static synchronized void release(String nodeName, int port) {
+    Map<Integer, String> ports = claimedPorts.get(nodeName);
+    if (ports != null) {
+      ports.remove(port);
+      if (ports.isEmpty()) {
+        claimedPorts.remove(nodeName);
+      }
+    }
+  }
+
+}
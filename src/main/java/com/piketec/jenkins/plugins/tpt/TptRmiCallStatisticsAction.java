@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.piketec.jenkins.plugins.tpt.api.callables.RmiCallStatistics;
+import com.piketec.jenkins.plugins.tpt.api.callables.RmiCallStatistics.MethodStatistics;
+import com.piketec.jenkins.plugins.tpt.api.callables.RmiCallStatisticsCollector;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * Shows how many remote calls to the TPT API a build made and how long they took, per interface
+ * method.
+ */
+public class TptRmiCallStatisticsAction implements RunAction2 {
+
+  private transient Run< ? , ? > run;
+
+  private final RmiCallStatistics statistics = new RmiCallStatistics();
+
+  /**
+   * Returns the statistics action of the given build and attaches a new one if the build has none
+   * yet.
+   * 
+   * @param run
+   *          The build
+   * @return the statistics action of the build
+   */
+  public static synchronized TptRmiCallStatisticsAction getOrCreate(Run< ? , ? > run) {
+    TptRmiCallStatisticsAction action = run.getAction(TptRmiCallStatisticsAction.class);
+    if (action == null) {
+      action = new TptRmiCallStatisticsAction();
+      run.addAction(action);
+    }
+    return action;
+  }
+
+  /**
+   * Creates a collector that adds the statistics reported by the callables to this action. The
+   * collector is meant to be exported to the agent.
+   * 
+   * @return the collector
+   */
+  public RmiCallStatisticsCollector createCollector() {
+    return new Collector();
+  }
+
+  @Override
+  public void onAttached(Run< ? , ? > run) {
+    this.run = run;
+  }
+
+  @Override
+  public void onLoad(Run< ? , ? > run) {
+    this.run = run;
+  }
+
+  /**
+   * @return The build
+   */
+  public Run< ? , ? > getRun() {
+    return run;
+  }
+
+  @Override
+  public String getIconFileName() {
+    return "/plugin/piketec-tpt/tpt.ico";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "TPT API Calls";
+  }
+
+  @Override
+  public String getUrlName() {
+    return "TPT_API_Calls";
+  }
+
+  /**
+   * @return the statistics of all called methods, the methods with the highest total duration
+   *         first
+   */
+  public List<MethodStatistics> getMethods() {
+    return statistics.getMethods();
+  }
+
+  /**
+   * @return the labels of the latency histogram buckets
+   */
+  public List<String> getBucketLabels() {
+    List<String> labels = new ArrayList<>();
+    long limit = 0;
+    for (long bucketLimit : RmiCallStatistics.BUCKET_LIMITS_MILLIS) {
+      limit = bucketLimit;
+      labels.add("< " + limit + " ms");
+    }
+    labels.add(">= " + limit + " ms");
+    return labels;
+  }
+
+  /**
+   * Adds the statistics reported by the agent to the action
+   */
+  private class Collector implements RmiCallStatisticsCollector {
+
+    @Override
+    public void add(RmiCallStatistics callStatistics) {
+      statistics.merge(callStatistics);
+    }
+  }
+}
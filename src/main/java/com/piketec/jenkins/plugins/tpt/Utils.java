@@ -244,6 +244,16 @@ public class Utils {
     return sb.toString();
   }
 
+  /**
+   * @param millis
+   *          A duration in milliseconds
+   * @return the duration formatted as hours, minutes and seconds
+   */
+  public static String formatDuration(long millis) {
+    long seconds = millis / 1000;
+    return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+  }
+
   /**
    * TPT changes its workind directory during execution, fails to set it back correctly after
    * multicore execution and prevents the deletion of test data directory. This method only deletes
@@ -20,12 +20,13 @@
  */
 package com.piketec.jenkins.plugins.tpt;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.piketec.jenkins.plugins.tpt.Configuration.JenkinsConfiguration;
 
@@ -40,10 +41,18 @@ import hudson.model.Run;
  */
 public class WorkLoad {
 
-  private static HashMap<String, LinkedList<WorkLoad>> workloads = new HashMap<>();
+  /**
+   * The queued workloads by worker job name and externalizable id of the distributing build
+   */
+  private static final Map<String, Map<String, Queue<WorkLoad>>> workloads =
+      new ConcurrentHashMap<>();
 
   private List<String> testCases;
 
+  private TestCasePool testCasePool;
+
+  private int batchSize;
+
   private Run< ? , ? > distributingJobRun;
 
   private FilePath distributingJobWorkspace;
@@ -52,8 +61,12 @@ public class WorkLoad {
 
   private FilePath distributingJobReportDir;
 
+  private String distributingJobRunId;
+
   private JenkinsConfiguration jenkinsConfig;
 
+  private boolean reportResults = false;
+
   /**
    * @param unresolvedConfig
    *          JenkinsConfiguration that contains paths and tpt file names with unresolved $-vars
@@ -77,6 +90,58 @@ public class WorkLoad {
     this.distributingJobWorkspace = distributingJobWorkspace;
     this.distributingJobDataDir = distributingJobDataDir;
     this.distributingJobReportDir = distributingJobReportDir;
+    this.distributingJobRunId = distributingJobRun.getExternalizableId();
+  }
+
+  /**
+   * Creates a workload for the dynamic mode. The worker claims batches of test cases from the given
+   * pool until it is empty.
+   * 
+   * @param unresolvedConfig
+   *          JenkinsConfiguration that contains paths and tpt file names with unresolved $-vars
+   * @param testCasePool
+   *          the pool of test cases shared by all workers of the execution configuration
+   * @param batchSize
+   *          the number of test cases the worker claims at once
+   * @param distributingJobWorkspace
+   *          the workspace from the distributing job, used for knowing where to copy the results
+   * @param distributingJobRun
+   *          the current build, used in order to get an unique id
+   * @param distributingJobDataDir
+   *          The test data directory of the distributing job
+   * @param distributingJobReportDir
+   *          The report directory the distributing job
+   */
+  public WorkLoad(JenkinsConfiguration unresolvedConfig, TestCasePool testCasePool, int batchSize,
+                  FilePath distributingJobWorkspace, Run< ? , ? > distributingJobRun,
+                  FilePath distributingJobDataDir, FilePath distributingJobReportDir) {
+    this(unresolvedConfig, Collections.<String> emptyList(), distributingJobWorkspace,
+        distributingJobRun, distributingJobDataDir, distributingJobReportDir);
+    this.testCasePool = testCasePool;
+    this.batchSize = batchSize;
+  }
+
+  private WorkLoad(WorkLoad other, List<String> testCases) {
+    this.jenkinsConfig = other.jenkinsConfig;
+    this.testCases = testCases;
+    this.testCasePool = other.testCasePool;
+    this.batchSize = other.batchSize;
+    this.distributingJobRun = other.distributingJobRun;
+    this.distributingJobWorkspace = other.distributingJobWorkspace;
+    this.distributingJobDataDir = other.distributingJobDataDir;
+    this.distributingJobReportDir = other.distributingJobReportDir;
+    this.distributingJobRunId = other.distributingJobRunId;
+    this.reportResults = other.reportResults;
+  }
+
+  /**
+   * @param testCases
+   *          the test cases the new workload should execute
+   * @return a copy of this workload that executes the given test cases, e.g. to retry only some of
+   *         them
+   */
+  public WorkLoad withTestCases(List<String> testCases) {
+    return new WorkLoad(this, testCases);
   }
 
   /**
@@ -87,12 +152,44 @@ public class WorkLoad {
   }
 
   /**
-   * @return the test cases that should be executed
+   * @return the test cases that should be executed. Empty if the workload uses a
+   *         {@link #getTestCasePool() test case pool}.
    */
   public List<String> getTestCases() {
     return testCases;
   }
 
+  /**
+   * @return the pool to claim test cases from or <code>null</code> if the test cases are fixed
+   */
+  public TestCasePool getTestCasePool() {
+    return testCasePool;
+  }
+
+  /**
+   * @return the number of test cases to claim at once from the test case pool
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @return <code>true</code> if the worker job should report the results of every execution to
+   *         the distributing job, <code>false</code> if the distributing job does not need them
+   */
+  public boolean isReportResults() {
+    return reportResults;
+  }
+
+  /**
+   * @param reportResults
+   *          <code>true</code> if the worker job should report the results of every execution to
+   *          the distributing job
+   */
+  public void setReportResults(boolean reportResults) {
+    this.reportResults = reportResults;
+  }
+
   /**
    * @return the workspace from the distributing job
    */
@@ -122,39 +219,97 @@ public class WorkLoad {
   }
 
   /**
-   * Adds a workload to the static HashMap. This method is used when the distributing job put the
-   * workload here and then triggers the worker job.
+   * Adds a workload to the registry. This method is used when the distributing job put the workload
+   * here and then triggers the worker job.
    * 
    * @param jobName
    *          The name of the jenkins job serving as a worker.
    * @param workloadToAdd
    *          The work package to be executed by the worker job
    */
-  public static synchronized void putWorkLoad(String jobName, WorkLoad workloadToAdd) {
-    LinkedList<WorkLoad> queue = workloads.get(jobName);
-    if (queue == null) {
-      queue = new LinkedList<>();
-      workloads.put(jobName, queue);
-    }
-    if (!queue.contains(workloadToAdd)) {
-      queue.offer(workloadToAdd);
-    }
+  public static void putWorkLoad(String jobName, WorkLoad workloadToAdd) {
+    workloads.computeIfAbsent(jobName, name -> new ConcurrentHashMap<>())
+        .compute(workloadToAdd.distributingJobRunId, (id, queue) -> {
+          Queue<WorkLoad> result = queue == null ? new ConcurrentLinkedQueue<>() : queue;
+          result.offer(workloadToAdd);
+          return result;
+        });
+  }
+
+  /**
+   * Pops a workload of the given distributing build from the registry. This method is used from the
+   * worker when a build has been triggered and it needs to do some workload.
+   * 
+   * @param jobName
+   *          The name of the jenkins job serving as a worker job.
+   * @param distributingJobRunId
+   *          The externalizable id of the distributing build that scheduled the worker job build
+   * @return the workload that has been removed, null if there is nothing to remove.
+   */
+  public static WorkLoad pollWorkload(String jobName, String distributingJobRunId) {
+    Map<String, Queue<WorkLoad>> byRun = workloads.get(jobName);
+    Queue<WorkLoad> queue = byRun == null ? null : byRun.get(distributingJobRunId);
+    return queue == null ? null : queue.poll();
   }
 
   /**
-   * Pops the workload from the static HashMap. This method is used from the worker when a build has
-   * been triggered and it needs to do some workload.
+   * Pops a workload of any distributing build from the registry. This method is used from the
+   * worker if it does not know the distributing build that scheduled it.
    * 
    * @param jobName
    *          The name of the jenkins job serving as a worker job.
    * @return the workload that has been removed, null if there is nothing to remove.
    */
-  public static synchronized WorkLoad pollWorkload(String jobName) {
-    Queue<WorkLoad> queue = workloads.get(jobName);
-    if (queue == null || queue.isEmpty()) {
+  public static WorkLoad pollWorkload(String jobName) {
+    Map<String, Queue<WorkLoad>> byRun = workloads.get(jobName);
+    if (byRun == null) {
       return null;
     }
-    return queue.poll();
+    for (String distributingJobRunId : byRun.keySet()) {
+      WorkLoad workLoad = pollWorkload(jobName, distributingJobRunId);
+      if (workLoad != null) {
+        return workLoad;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks if there are workloads of the given distributing job build that were not polled by a
+   * worker job yet.
+   * 
+   * @param jobName
+   *          The name of the jenkins job serving as a worker.
+   * @param distributingJobRun
+   *          the build of the distributing job
+   * @return <code>true</code> if at least one workload of the build is waiting for a worker
+   */
+  public static boolean hasWorkLoad(String jobName, Run< ? , ? > distributingJobRun) {
+    Map<String, Queue<WorkLoad>> byRun = workloads.get(jobName);
+    Queue<WorkLoad> queue =
+        byRun == null ? null : byRun.get(distributingJobRun.getExternalizableId());
+    return queue != null && !queue.isEmpty();
+  }
+
+  /**
+   * Removes the workloads of the given distributing job build that only contain the given test
+   * cases. This is used if the test cases are already executed by another worker.
+   * 
+   * @param jobName
+   *          The name of the jenkins job serving as a worker.
+   * @param distributingJobRun
+   *          the build of the distributing job
+   * @param testCases
+   *          the test cases that do not have to be executed anymore
+   */
+  public static void removeWorkLoads(String jobName, Run< ? , ? > distributingJobRun,
+                                     Collection<String> testCases) {
+    Map<String, Queue<WorkLoad>> byRun = workloads.get(jobName);
+    Queue<WorkLoad> queue =
+        byRun == null ? null : byRun.get(distributingJobRun.getExternalizableId());
+    if (queue != null) {
+      queue.removeIf(next -> next.testCasePool == null && testCases.containsAll(next.testCases));
+    }
   }
 
   /**
@@ -166,20 +321,10 @@ public class WorkLoad {
    * @param distributingJobRun
    *          the build of the distributing job
    */
-  public static synchronized void clean(String jobName, Run< ? , ? > distributingJobRun) {
-    LinkedList<WorkLoad> queue = workloads.get(jobName);
-    if (queue == null) {
-      return;
-    }
-    Iterator<WorkLoad> iterator = queue.iterator();
-    while (iterator.hasNext()) {
-      WorkLoad next = iterator.next();
-      if (Objects.equals(next.distributingJobRun, distributingJobRun)) {
-        iterator.remove();
-      }
-    }
-    if (queue.isEmpty()) {
-      workloads.remove(jobName);
+  public static void clean(String jobName, Run< ? , ? > distributingJobRun) {
+    Map<String, Queue<WorkLoad>> byRun = workloads.get(jobName);
+    if (byRun != null) {
+      byRun.remove(distributingJobRun.getExternalizableId());
     }
   }
 
@@ -1,12 +1,20 @@
 package com.piketec.jenkins.plugins.tpt.api.callables;
 
+import java.nio.charset.StandardCharsets;
 import java.rmi.RemoteException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.CheckForNull;
+
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.remoting.RoleChecker;
 
@@ -19,7 +27,6 @@ import com.piketec.tpt.api.ExecutionConfigurationItem;
 import com.piketec.tpt.api.ExecutionStatus;
 import com.piketec.tpt.api.Project;
 import com.piketec.tpt.api.Scenario;
-import com.piketec.tpt.api.ScenarioGroup;
 import com.piketec.tpt.api.ScenarioOrGroup;
 import com.piketec.tpt.api.TestSet;
 import com.piketec.tpt.api.TptApi;
@@ -34,6 +41,11 @@ public class ExecuteTestsWorkerJobCallable extends TptApiCallable<Boolean> {
 
   private static final long serialVersionUID = 1L;
 
+  /**
+   * The name prefix of the test sets created for the execution of a work package
+   */
+  static final String TEMPORARY_TEST_SET_PREFIX = "JENKINS Exec ";
+
   private FilePath tptFilePath;
 
   private FilePath workerJobReportPath;
@@ -46,6 +58,12 @@ public class ExecuteTestsWorkerJobCallable extends TptApiCallable<Boolean> {
 
   private String testSetName;
 
+  @CheckForNull
+  private ExecutionProgressListener progressListener = null;
+
+  @CheckForNull
+  private Integer reservedCores = null;
+
   /**
    * Create a new callable to execute a subset of tests of a given test set as part of a complete
    * test execution.
@@ -90,6 +108,24 @@ public class ExecuteTestsWorkerJobCallable extends TptApiCallable<Boolean> {
     this.testSetName = testSetName;
   }
 
+  /**
+   * @param progressListener
+   *          the listener to report the progress of the execution to or <code>null</code>. Has to
+   *          be exported to the agent.
+   */
+  public void setProgressListener(@CheckForNull ExecutionProgressListener progressListener) {
+    this.progressListener = progressListener;
+  }
+
+  /**
+   * @param reservedCores
+   *          the number of processors of the agent not used for the execution or
+   *          <code>null</code> to keep the number of cores of the execution configuration
+   */
+  public void setReservedCores(@CheckForNull Integer reservedCores) {
+    this.reservedCores = reservedCores;
+  }
+
   @Override
   public Boolean call() throws InterruptedException {
     TptLogger logger = getLogger();
@@ -122,9 +158,8 @@ public class ExecuteTestsWorkerJobCallable extends TptApiCallable<Boolean> {
       String oldReportDir = config.getReportDirPath();
       String oldTestDataDir = config.getDataDirPath();
 
-      Collection<Scenario> foundScenearios = new HashSet<>();
-      find(project.getTopLevelTestlet().getTopLevelScenarioOrGroup().getItems(), testSetList,
-          foundScenearios);
+      ScenarioIndex scenarioIndex = getScenarioIndex(logger, api, project, tptFilePath);
+      Collection<Scenario> foundScenearios = scenarioIndex.find(testSetList);
       if (foundScenearios.size() != testSetList.size()) {
         logger
             .error("Could only find " + foundScenearios.size() + " of " + testSetList.size() + ".");
@@ -134,91 +169,78 @@ public class ExecuteTestsWorkerJobCallable extends TptApiCallable<Boolean> {
       config.setDataDirPath(workerJobDataPath.getRemote());
       logger.info("Setting report directory to " + workerJobReportPath.getRemote());
       config.setReportDirPath(workerJobReportPath.getRemote());
-      // store information to undo changes
-      List<TestSet> oldTestSets = new ArrayList<>();
-      List<TestSet> newTestSets = new ArrayList<>();
+      int oldCores = -1;
+      if (reservedCores != null) {
+        int cores = Math.max(1, Runtime.getRuntime().availableProcessors() - reservedCores);
+        oldCores = config.getCores();
+        logger.info("Setting number of cores from " + oldCores + " to " + cores);
+        config.setCores(cores);
+      }
+      // store information to undo changes, only changed items are restored
+      Map<ExecutionConfigurationItem, TestSet> oldTestSets = new LinkedHashMap<>();
       List<ExecutionConfigurationItem> deactivated = new ArrayList<>();
-      int i = 0;
+      Map<String, TestSet> testSetsByName = new HashMap<>();
+      for (TestSet definedTestset : project.getTestSets().getItems()) {
+        testSetsByName.put(definedTestset.getName(), definedTestset);
+      }
       if (StringUtils.isEmpty(testSetName)) { // Use test sets defined in file
         for (ExecutionConfigurationItem item : config.getItems()) {
-          TestSet existingTestSet = item.getTestSet();
-          oldTestSets.add(existingTestSet);
           if (item.isActive()) {
-            Collection<Scenario> intersectionSet = intersectByHash(
+            TestSet existingTestSet = item.getTestSet();
+            Collection<Scenario> intersectionSet = intersectByHash(scenarioIndex,
                 TptApiHelper.getTestCasesFromTestSet(tptVersion, existingTestSet), foundScenearios);
             if (intersectionSet.isEmpty()) {
               item.setActive(false);
               deactivated.add(item);
             } else {
-              String tmpTestSetName = "JENKINS Exec " + i;
-              i++;
-              logger.info("Create test set \"" + tmpTestSetName + "\" for execution of \""
-                  + remoteScenarioSetToString(intersectionSet) + "\"");
-              TestSet testSet = project.createTestSet(tmpTestSetName);
-              newTestSets.add(testSet);
-              for (Scenario scen : intersectionSet) {
-                TptApiHelper.addTestCase(tptVersion, testSet, scen);
-              }
-              setTestSetCondtionIfPossible(existingTestSet, testSet, tptVersion, logger);
+              TestSet testSet = getTemporaryTestSet(project, testSetsByName, tptVersion,
+                  scenarioIndex, existingTestSet, existingTestSet.getName(), intersectionSet,
+                  logger);
+              oldTestSets.put(item, existingTestSet);
               item.setTestSet(testSet);
             }
           }
         }
       } else { // explicitly defined test set in Jenkins
-        String tmpTestSetName = "JENKINS Exec " + testSetName;
-        logger.info("Create test set \"" + tmpTestSetName + "\" for execution of \""
-            + remoteScenarioSetToString(foundScenearios) + "\" from File " + tptFilePath.getName());
-        TestSet testSet = project.createTestSet(tmpTestSetName);
-        newTestSets.add(testSet);
-        for (Scenario scen : foundScenearios) {
-          TptApiHelper.addTestCase(tptVersion, testSet, scen);
+        TestSet definedTestset = testSetsByName.get(testSetName);
+        if (definedTestset == null) {
+          logger.warn("Unable to find test set \"" + testSetName
+              + "\" on agent. Unable to update test set condition.");
         }
+        TestSet testSet = getTemporaryTestSet(project, testSetsByName, tptVersion, scenarioIndex,
+            definedTestset, testSetName, foundScenearios, logger);
         for (ExecutionConfigurationItem item : config.getItems()) {
-          oldTestSets.add(item.getTestSet());
           if (item.isActive()) {
+            oldTestSets.put(item, item.getTestSet());
             item.setTestSet(testSet);
           }
         }
-        boolean testSetFound = false;
-        for (TestSet definedTestset : project.getTestSets().getItems()) {
-          if (definedTestset.getName().equals(testSetName)) {
-            testSetFound = true;
-            setTestSetCondtionIfPossible(definedTestset, testSet, tptVersion, logger);
-            break;
-          }
-        }
-        if (!testSetFound) {
-          logger.warn("Unable to find test set \"" + testSet
-              + "\" on agent. Unable to update test set condition.");
-        }
       }
       // execute test
       ExecutionStatus execStatus = api.run(config);
       try {
-        while (execStatus.isRunning() || execStatus.isPending()) {
-          Thread.sleep(1000);
-        }
+        new ExecutionMonitor(execStatus, scenarioIndex, logger, progressListener).waitForEnd();
       } catch (InterruptedException e) {
         logger.interrupt(e.getMessage());
         execStatus.cancel();
         throw e;
       } finally {
-        // undo changes
+        // undo changes. The temporary test sets are kept for retries in this build, they are
+        // deleted when the project is closed at the end of the build.
         logger.info("Set test sets in execution config to old values.");
-        for (ExecutionConfigurationItem item : config.getItems()) {
-          TestSet oldTestSet = oldTestSets.remove(0);
+        for (Map.Entry<ExecutionConfigurationItem, TestSet> entry : oldTestSets.entrySet()) {
           // This happens because of a bug in the TPT API.
-          if (oldTestSet != null) {
-            item.setTestSet(oldTestSet);
+          if (entry.getValue() != null) {
+            entry.getKey().setTestSet(entry.getValue());
           }
         }
         logger.info("reset test data and report directory to \"" + oldTestDataDir + "\" and \""
             + oldReportDir + "\"");
         config.setDataDirPath(oldTestDataDir);
         config.setReportDirPath(oldReportDir);
-        for (TestSet testSet : newTestSets) {
-          logger.info("delete temporary test set \"" + testSet.getName() + "\"");
-          project.getTestSets().delete(testSet);
+        if (oldCores >= 0) {
+          logger.info("reset number of cores to " + oldCores);
+          config.setCores(oldCores);
         }
         logger.info("Reactivate temporary deactivated execution config items.");
         for (ExecutionConfigurationItem item : deactivated) {
@@ -233,6 +255,8 @@ public class ExecuteTestsWorkerJobCallable extends TptApiCallable<Boolean> {
       logger.error(e.getLocalizedMessage());
       e.printStackTrace(logger.getLogger());
       return false;
+    } finally {
+      releaseApi();
     }
     return true;
   }
@@ -242,48 +266,90 @@ public class ExecuteTestsWorkerJobCallable extends TptApiCallable<Boolean> {
   }
 
   /**
-   * Finds all the test cases of a given test set
-   * 
-   * @param sogs
-   * @param names
-   * @param result
-   * @throws RemoteException
-   * @throws ApiException
+   * Returns a temporary test set that contains exactly the given test cases. The name of the test
+   * set is derived from the source test set and the test cases, so execution configuration items
+   * with the same test cases share one test set and a retry of the same test cases in this build
+   * reuses the test set of the previous try. A new test set is filled with whole test case groups
+   * where possible. The temporary test sets are deleted when the project is closed at the end of
+   * the distributing build.
    */
-
-  private void find(Collection<ScenarioOrGroup> sogs, Collection<String> names,
-                    Collection<Scenario> result)
+  private TestSet getTemporaryTestSet(Project project, Map<String, TestSet> testSetsByName,
+                                      TptVersion tptVersion, ScenarioIndex scenarioIndex,
+                                      TestSet sourceTestSet, String sourceTestSetName,
+                                      Collection<Scenario> scenarios, TptLogger logger)
       throws RemoteException, ApiException {
-    for (ScenarioOrGroup sog : sogs) {
-      if (sog instanceof Scenario) {
-        if (names.contains(sog.getName())) {
-          result.add((Scenario)sog);
-        }
-      } else {
-        find(((ScenarioGroup)sog).getItems(), names, result);
+    String tmpTestSetName = TEMPORARY_TEST_SET_PREFIX
+        + getSignature(sourceTestSetName, scenarioIndex.getNames(scenarios));
+    TestSet testSet = testSetsByName.get(tmpTestSetName);
+    if (testSet != null) {
+      logger.info("Reuse test set \"" + tmpTestSetName + "\" for execution of \""
+          + remoteScenarioSetToString(scenarioIndex, scenarios) + "\"");
+      return testSet;
+    }
+    logger.info("Create test set \"" + tmpTestSetName + "\" for execution of \""
+        + remoteScenarioSetToString(scenarioIndex, scenarios) + "\" from File "
+        + tptFilePath.getName());
+    testSet = project.createTestSet(tmpTestSetName);
+    if (tptVersion.isAtLeast(19, 0)) {
+      for (ScenarioOrGroup sog : scenarioIndex.cover(scenarios)) {
+        testSet.addTestCaseOrGroup(sog);
       }
+    } else {
+      for (Scenario scen : scenarios) {
+        TptApiHelper.addTestCase(tptVersion, testSet, scen);
+      }
+    }
+    if (sourceTestSet != null) {
+      setTestSetCondtionIfPossible(sourceTestSet, testSet, tptVersion, logger);
     }
+    testSetsByName.put(tmpTestSetName, testSet);
+    return testSet;
   }
 
   /**
-   * Matches the tests cases from a test set with all the test cases found.
+   * @return a short hash of the source test set name and the test case names
+   */
+  private static String getSignature(String sourceTestSetName, Collection<String> testCaseNames) {
+    List<String> sorted = new ArrayList<>(testCaseNames);
+    Collections.sort(sorted);
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(String.valueOf(sourceTestSetName).getBytes(StandardCharsets.UTF_8));
+      for (String name : sorted) {
+        digest.update((byte)0);
+        digest.update(name.getBytes(StandardCharsets.UTF_8));
+      }
+      StringBuilder sb = new StringBuilder();
+      byte[] hash = digest.digest();
+      for (int i = 0; i < 8; i++) {
+        sb.append(String.format("%02x", hash[i]));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Matches the tests cases from a test set with all the test cases found. The names are taken
+   * from the scenario index, so no remote calls are needed for test cases of the project.
    * 
+   * @param scenarioIndex
+   *          the snapshot of the test cases of the project
    * @param scenColl1
    * @param scenCol2
    * @return the intersected test cases
    * @throws RemoteException
-   * @throws ApiException
    */
-  static Collection<Scenario> intersectByHash(Collection<Scenario> scenColl1,
+  static Collection<Scenario> intersectByHash(ScenarioIndex scenarioIndex,
+                                              Collection<Scenario> scenColl1,
                                               Collection<Scenario> scenCol2)
-      throws RemoteException, ApiException {
-    Set<String> scenCol1Names = new HashSet<>();
+      throws RemoteException {
+    Set<String> scenCol1Names = scenarioIndex.getNames(scenColl1);
     ArrayList<Scenario> result = new ArrayList<>();
-    for (Scenario scen : scenColl1) {
-      scenCol1Names.add(scen.getName());
-    }
     for (Scenario scen : scenCol2) {
-      if (scenCol1Names.contains(scen.getName())) {
+      if (scenCol1Names.contains(scenarioIndex.getName(scen))) {
         result.add(scen);
       }
     }
@@ -293,20 +359,22 @@ public class ExecuteTestsWorkerJobCallable extends TptApiCallable<Boolean> {
   /**
    * Convert the given test cases to a String
    * 
+   * @param scenarioIndex
+   *          the snapshot of the test cases of the project
    * @param intersectionSet
    *          to be converted
    * @return the given test cases as a String , separated with a comma
    * @throws RemoteException
-   * @throws ApiException
    */
-  private String remoteScenarioSetToString(Collection<Scenario> intersectionSet)
-      throws RemoteException, ApiException {
+  private String remoteScenarioSetToString(ScenarioIndex scenarioIndex,
+                                           Collection<Scenario> intersectionSet)
+      throws RemoteException {
     StringBuilder sb = new StringBuilder();
     for (Scenario scen : intersectionSet) {
       if (sb.length() > 0) {
         sb.append(", ");
       }
-      sb.append(scen.getName());
+      sb.append(scenarioIndex.getName(scen));
     }
     return sb.toString();
   }
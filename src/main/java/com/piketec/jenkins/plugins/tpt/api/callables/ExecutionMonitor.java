@@ -0,0 +1,236 @@
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.piketec.jenkins.plugins.tpt.TptLogger;
+import com.piketec.jenkins.plugins.tpt.Utils;
+import com.piketec.tpt.api.ExecutionStatus;
+import com.piketec.tpt.api.Scenario;
+import com.piketec.tpt.api.TestCaseExecutionStatus;
+import com.piketec.tpt.api.TestCaseExecutionStatus.TestCaseStatus;
+
+/**
+ * Waits for the end of a test execution. Every poll asks only for the number of pending test
+ * cases, whether the execution ended is only asked when that number did not change. The poll
+ * interval starts at one second, doubles while the number does not change and is halved when it
+ * changes, but never gets shorter than one second. So long running test cases cause only few remote
+ * calls and many short test cases do not cause a call each. The status of at most
+ * {@link #MAX_STATUS_CALLS_PER_POLL} test cases is asked per poll. Every finished test case is
+ * written to the build log together with the throughput and the estimated remaining time and the
+ * progress is reported to an optional {@link ExecutionProgressListener} when it changed. Test cases
+ * running unusually long are logged as well.
+ */
+class ExecutionMonitor {
+
+  private static final long MIN_POLL_INTERVAL = 1000;
+
+  private static final long MAX_POLL_INTERVAL = 5000;
+
+  /**
+   * The maximal number of test cases whose status is asked in one poll while the execution is
+   * running. The remaining ones are asked in the following polls.
+   */
+  private static final int MAX_STATUS_CALLS_PER_POLL = 10;
+
+  /**
+   * A test case running longer than this is logged, again every time its running time doubled.
+   */
+  private static final long LONG_RUNNING_THRESHOLD = 60000;
+
+  private final ExecutionStatus execStatus;
+
+  private final ScenarioIndex scenarioIndex;
+
+  private final TptLogger logger;
+
+  private final ExecutionProgressListener progressListener;
+
+  private List<TestCaseExecutionStatus> testCases;
+
+  /**
+   * The index of the first test case that was not reported as finished yet
+   */
+  private int firstUnfinished = 0;
+
+  private final List<Integer> runningAhead = new ArrayList<>();
+
+  private int finishedCount = 0;
+
+  private long start;
+
+  private String currentTestCase = null;
+
+  private long currentTestCaseStart;
+
+  private long nextLongRunningWarning;
+
+  /**
+   * <code>true</code> if not all test cases that might have finished could be checked in the last
+   * poll
+   */
+  private boolean behind = false;
+
+  private int reportedFinishedCount = -1;
+
+  private String reportedTestCase = null;
+
+  /**
+   * @param execStatus
+   *          The status of the test execution to wait for
+   * @param scenarioIndex
+   *          to look up the names of the test cases
+   * @param logger
+   *          to log the progress
+   * @param progressListener
+   *          to report the progress to or <code>null</code>
+   */
+  ExecutionMonitor(ExecutionStatus execStatus, ScenarioIndex scenarioIndex, TptLogger logger,
+                   ExecutionProgressListener progressListener) {
+    this.execStatus = execStatus;
+    this.scenarioIndex = scenarioIndex;
+    this.logger = logger;
+    this.progressListener = progressListener;
+  }
+
+  /**
+   * Blocks until the execution is neither running nor pending anymore.
+   * 
+   * @throws RemoteException
+   *           remote communication problem
+   * @throws InterruptedException
+   *           If the thread was interrupted while waiting
+   */
+  void waitForEnd() throws RemoteException, InterruptedException {
+    start = System.currentTimeMillis();
+    long interval = MIN_POLL_INTERVAL;
+    int lastPending = -1;
+    while (true) {
+      int pending = execStatus.getNumberOfPendingTestCases();
+      if (pending != lastPending && pending > 0) {
+        // an execution with a changing number of pending test cases is still going on
+        lastPending = pending;
+        interval = Math.max(interval / 2, MIN_POLL_INTERVAL);
+        update(false);
+      } else if (execStatus.isRunning() || execStatus.isPending()) {
+        if (pending != lastPending || behind) {
+          lastPending = pending;
+          update(false);
+        } else {
+          interval = Math.min(2 * interval, MAX_POLL_INTERVAL);
+          checkLongRunning();
+        }
+      } else {
+        break;
+      }
+      Thread.sleep(interval);
+    }
+    update(true);
+  }
+
+  /**
+   * Reports the test cases finished since the last update and the running test case. To keep the
+   * remote calls low, the test cases are checked in execution order up to the first pending one
+   * and at most {@link #MAX_STATUS_CALLS_PER_POLL} test cases are checked. When the execution ended
+   * all remaining test cases are checked.
+   */
+  private void update(boolean ended) throws RemoteException {
+    if (testCases == null) {
+      testCases = execStatus.getAllTestCases();
+      if (testCases.isEmpty()) {
+        // execution not started yet
+        testCases = null;
+        return;
+      }
+    }
+    int maxStatusCalls = ended ? Integer.MAX_VALUE : MAX_STATUS_CALLS_PER_POLL;
+    int statusCalls = 0;
+    behind = false;
+    for (int i = 0; i < runningAhead.size(); i++) {
+      if (statusCalls++ >= maxStatusCalls) {
+        behind = true;
+        break;
+      }
+      if (reportIfFinished(runningAhead.get(i))) {
+        runningAhead.remove(i--);
+      }
+    }
+    while (firstUnfinished < testCases.size()) {
+      if (statusCalls++ >= maxStatusCalls) {
+        behind = true;
+        break;
+      }
+      TestCaseStatus status = testCases.get(firstUnfinished).getStatus();
+      if (status == TestCaseStatus.Running) {
+        runningAhead.add(firstUnfinished);
+      } else if (status == TestCaseStatus.Pending) {
+        if (!ended) {
+          break;
+        }
+      } else {
+        report(testCases.get(firstUnfinished), status);
+      }
+      firstUnfinished++;
+    }
+    Scenario current = ended ? null : execStatus.getCurrentTestCase();
+    String currentName = current == null ? null : scenarioIndex.getName(current);
+    if (currentName == null || !currentName.equals(currentTestCase)) {
+      currentTestCase = currentName;
+      currentTestCaseStart = System.currentTimeMillis();
+      nextLongRunningWarning = LONG_RUNNING_THRESHOLD;
+    }
+    if (progressListener != null && (finishedCount != reportedFinishedCount
+        || !Objects.equals(currentTestCase, reportedTestCase))) {
+      reportedFinishedCount = finishedCount;
+      reportedTestCase = currentTestCase;
+      try {
+        progressListener.progress(finishedCount, testCases.size(), currentTestCase,
+            System.currentTimeMillis() - start);
+      } catch (RuntimeException e) {
+        // the progress is informative only, the execution must not fail because of it
+        logger.warn("Could not report progress: " + e.getMessage());
+      }
+    }
+  }
+
+  private boolean reportIfFinished(int index) throws RemoteException {
+    TestCaseStatus status = testCases.get(index).getStatus();
+    if (status == TestCaseStatus.Running || status == TestCaseStatus.Pending) {
+      return false;
+    }
+    report(testCases.get(index), status);
+    return true;
+  }
+
+  private void report(TestCaseExecutionStatus testCase, TestCaseStatus status)
+      throws RemoteException {
+    finishedCount++;
+    long elapsed = System.currentTimeMillis() - start;
+    int total = testCases.size();
+    StringBuilder sb = new StringBuilder();
+    sb.append("Test case \"").append(scenarioIndex.getName(testCase.getTestcase()))
+        .append("\" finished: ").append(status.name()).append(" (").append(finishedCount)
+        .append('/').append(total);
+    if (elapsed > 0) {
+      sb.append(", ").append(String.format("%.1f", finishedCount * 60000.0 / elapsed))
+          .append(" test cases/min, remaining ")
+          .append(Utils.formatDuration(elapsed * (total - finishedCount) / finishedCount));
+    }
+    sb.append(')');
+    logger.info(sb.toString());
+  }
+
+  private void checkLongRunning() {
+    if (currentTestCase == null) {
+      return;
+    }
+    long running = System.currentTimeMillis() - currentTestCaseStart;
+    if (running >= nextLongRunningWarning) {
+      logger.warn("Test case \"" + currentTestCase + "\" is running for "
+          + Utils.formatDuration(running));
+      nextLongRunningWarning *= 2;
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Receives the progress of a test execution on an agent. An implementation on the Jenkins controller
+ * is exported to the agent via the remoting channel, so every call is a remote call.
+ */
+public interface ExecutionProgressListener {
+
+  /**
+   * Called whenever test cases finished or another test case started.
+   * 
+   * @param finished
+   *          the number of finished test cases
+   * @param total
+   *          the number of test cases of the execution
+   * @param currentTestCase
+   *          the name of the running test case or <code>null</code> if no test case is running
+   * @param elapsedMillis
+   *          the time since the start of the execution in milliseconds
+   */
+  void progress(int finished, int total, @CheckForNull String currentTestCase,
+                long elapsedMillis);
+}
@@ -0,0 +1,96 @@
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import com.piketec.jenkins.plugins.tpt.TptLogger;
+import com.piketec.jenkins.plugins.tpt.TptVersion;
+import com.piketec.tpt.api.ApiException;
+import com.piketec.tpt.api.Project;
+import com.piketec.tpt.api.TptApi;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+
+/**
+ * This Callable returns the test cases of several execution configurations at once, each one as
+ * {@link GetTestCasesCallable} would. All of them are collected with one TPT API connection and
+ * every TPT file is opened only once. The code is run on a Jenkins Agent and uses the TPT API.
+ */
+public class GetAllTestCasesCallable
+    extends TptApiCallable<ArrayList<GetTestCasesCallableResult>> {
+
+  private static final long serialVersionUID = 1L;
+
+  private List<GetTestCasesCallable> queries;
+
+  /**
+   * @param listener
+   *          The task listener
+   * @param tptPort
+   *          The port for TPT RMI API calls
+   * @param tptBindingName
+   *          The binding name for TPT RMI API calls
+   * @param exePaths
+   *          Paths to look for TPT installations
+   * @param arguments
+   *          startup arguments fo TPT
+   * @param startUpWaitTime
+   *          Timeto wait for TPT start up
+   * @param queries
+   *          The TPT files, execution configurations and test sets to get the test cases for
+   */
+  public GetAllTestCasesCallable(TaskListener listener, int tptPort, String tptBindingName,
+                                 FilePath[] exePaths, List<String> arguments,
+                                 long startUpWaitTime, List<GetTestCasesCallable> queries) {
+    super(listener, tptPort, tptBindingName, exePaths, arguments, startUpWaitTime);
+    this.queries = queries;
+  }
+
+  @Override
+  public void checkRoles(RoleChecker arg0) throws SecurityException {
+  }
+
+  /**
+   * @return the test cases of every query in the same order, <code>null</code> for a query whose
+   *         test cases could not be determined. <code>null</code> if TPT is not reachable.
+   */
+  @Override
+  public ArrayList<GetTestCasesCallableResult> call() throws InterruptedException {
+    TptLogger logger = getLogger();
+    try {
+      TptApi api = getApi();
+      if (api == null) {
+        logger.error("Could not establish connection to the TPT API.");
+        return null;
+      }
+      TptVersion tptVersion = TptVersion.getVersion(api);
+      Map<String, Project> projects = new HashMap<>();
+      ArrayList<GetTestCasesCallableResult> results = new ArrayList<>();
+      for (GetTestCasesCallable query : queries) {
+        String path = query.getTptFilePath().getRemote();
+        if (!projects.containsKey(path)) {
+          // Open the TPT Project via the TPT-API
+          projects.put(path, getOpenProject(logger, api, query.getTptFilePath()));
+        }
+        Project project = projects.get(path);
+        results.add(project == null ? null : query.getTestCases(logger, tptVersion, project));
+      }
+      return results;
+    } catch (RemoteException e) {
+      logger.error("RemoteException: " + e.getMessage());
+      return null;
+    } catch (ApiException e) {
+      logger.error("ApiException: " + e.getMessage());
+      return null;
+    } finally {
+      releaseApi();
+    }
+  }
+
+}
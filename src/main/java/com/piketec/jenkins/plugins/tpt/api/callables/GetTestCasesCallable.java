@@ -5,6 +5,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.annotation.CheckForNull;
+
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.remoting.RoleChecker;
 
@@ -59,81 +61,113 @@ public class GetTestCasesCallable extends TptApiCallable<GetTestCasesCallableRes
         return null;
       }
       TptVersion tptVersion = TptVersion.getVersion(api);
-      Set<String> testCases = null;
-      int totalTestCaseCount = 0;
 
       // Open the TPT Project via the TPT-API
       Project project = getOpenProject(logger, api, tptFilePath);
       if (project == null) {
         return null;
       }
-      // Get the execution cofig that should be executed
-      ExecutionConfiguration executionConfig =
-          getExecutionConfigByName(project, executionConfigName);
-      if (executionConfig == null) {
-        logger.error("Unable to find execution configuration \"" + executionConfigName + "\"");
-        return null;
-      }
-      boolean testCaseConditionPresent = false;
-      // Get all testcases that should be executed
-      if (StringUtils.isNotEmpty(testSet)) { // explicit configured test set via Jenkins
-        boolean testSetFound = false;
-        for (TestSet definedTestset : project.getTestSets().getItems()) {
-          if (definedTestset.getName().equals(testSet)) {
-            testSetFound = true;
-            testCases = new HashSet<>();
-            for (Scenario testcase : TptApiHelper.getTestCasesFromTestSet(tptVersion,
-                definedTestset)) {
-              testCases.add(testcase.getName());
-            }
-            for (ExecutionConfigurationItem item : executionConfig.getItems()) {
-              if (item.isActive()) {
-                totalTestCaseCount += testCases.size();
-              }
-            }
-            testCaseConditionPresent =
-                checkForTestCaseConditionIfPossible(definedTestset, tptVersion);
-            break;
+      return getTestCases(logger, tptVersion, project);
+    } catch (RemoteException e) {
+      logger.error("RemoteException: " + e.getMessage());
+      return null;
+    } catch (ApiException e) {
+      logger.error("ApiException: " + e.getMessage());
+      return null;
+    } finally {
+      releaseApi();
+    }
+  }
+
+  /**
+   * Collects the test cases of the execution configuration and test set of this callable from an
+   * already opened project.
+   * 
+   * @param logger
+   *          to log errors
+   * @param tptVersion
+   *          The version of TPT the project is opened with
+   * @param project
+   *          The project of the TPT file of this callable
+   * @return the test cases or <code>null</code> if they could not be determined
+   * @throws RemoteException
+   *           remote communication problem
+   * @throws ApiException
+   *           If the TPT API reports an error
+   */
+  @CheckForNull
+  GetTestCasesCallableResult getTestCases(TptLogger logger, TptVersion tptVersion,
+                                          Project project)
+      throws RemoteException, ApiException {
+    Set<String> testCases = null;
+    int totalTestCaseCount = 0;
+    // Get the execution cofig that should be executed
+    ExecutionConfiguration executionConfig =
+        getExecutionConfigByName(project, executionConfigName);
+    if (executionConfig == null) {
+      logger.error("Unable to find execution configuration \"" + executionConfigName + "\"");
+      return null;
+    }
+    boolean testCaseConditionPresent = false;
+    // Get all testcases that should be executed
+    if (StringUtils.isNotEmpty(testSet)) { // explicit configured test set via Jenkins
+      boolean testSetFound = false;
+      for (TestSet definedTestset : project.getTestSets().getItems()) {
+        if (definedTestset.getName().equals(testSet)) {
+          testSetFound = true;
+          testCases = new HashSet<>();
+          for (Scenario testcase : TptApiHelper.getTestCasesFromTestSet(tptVersion,
+              definedTestset)) {
+            testCases.add(testcase.getName());
           }
-        }
-        if (!testSetFound) {
-          logger.error("Unable to find test set \"" + testSet + "\"");
-          return null;
-        }
-      } else { // use test sets configured in TPT file
-        testCases = new HashSet<>();
-        for (ExecutionConfigurationItem item : executionConfig.getItems()) {
-          if (item.isActive()) {
-            TestSet testSet = item.getTestSet();
-            if (testSet == null) {
-              logger.error(
-                  "Unable to get items for dynamic test set of currently in TPT selected test cases."
-                      + " Please configure a test set.");
-              return null;
+          for (ExecutionConfigurationItem item : executionConfig.getItems()) {
+            if (item.isActive()) {
+              totalTestCaseCount += testCases.size();
             }
-            for (Scenario testcase : TptApiHelper.getTestCasesFromTestSet(tptVersion, testSet)) {
-              testCases.add(testcase.getName());
-              totalTestCaseCount++;
-            }
-            testCaseConditionPresent |= checkForTestCaseConditionIfPossible(testSet, tptVersion);
           }
+          testCaseConditionPresent =
+              checkForTestCaseConditionIfPossible(definedTestset, tptVersion);
+          break;
         }
       }
-      if (testCases == null || testCases.isEmpty()) {
-        logger.error(
-            "No test cases are found to execute. It is possible that \"selected Test Cases \" is"
-                + " configured as test set. If so please change it to another existing test set");
+      if (!testSetFound) {
+        logger.error("Unable to find test set \"" + testSet + "\"");
         return null;
       }
-      return new GetTestCasesCallableResult(testCases, totalTestCaseCount, testCaseConditionPresent,
-          tptVersion);
-    } catch (RemoteException e) {
-      logger.error("RemoteException: " + e.getMessage());
-      return null;
-    } catch (ApiException e) {
-      logger.error("ApiException: " + e.getMessage());
+    } else { // use test sets configured in TPT file
+      testCases = new HashSet<>();
+      for (ExecutionConfigurationItem item : executionConfig.getItems()) {
+        if (item.isActive()) {
+          TestSet testSet = item.getTestSet();
+          if (testSet == null) {
+            logger.error(
+                "Unable to get items for dynamic test set of currently in TPT selected test cases."
+                    + " Please configure a test set.");
+            return null;
+          }
+          for (Scenario testcase : TptApiHelper.getTestCasesFromTestSet(tptVersion, testSet)) {
+            testCases.add(testcase.getName());
+            totalTestCaseCount++;
+          }
+          testCaseConditionPresent |= checkForTestCaseConditionIfPossible(testSet, tptVersion);
+        }
+      }
+    }
+    if (testCases == null || testCases.isEmpty()) {
+      logger.error(
+          "No test cases are found to execute. It is possible that \"selected Test Cases \" is"
+              + " configured as test set. If so please change it to another existing test set");
       return null;
     }
+    return new GetTestCasesCallableResult(testCases, totalTestCaseCount, testCaseConditionPresent,
+        tptVersion);
+  }
+
+  /**
+   * @return the TPT file to get the test cases from
+   */
+  public FilePath getTptFilePath() {
+    return tptFilePath;
   }
 
   private boolean checkForTestCaseConditionIfPossible(TestSet testset, TptVersion tptVersion)
@@ -0,0 +1,205 @@
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts the remote calls to the TPT API and their latency per interface method, e.g.
+ * <code>Scenario.getName</code>. The latencies are collected in a histogram with the upper bounds
+ * given by {@link #BUCKET_LIMITS_MILLIS}.
+ */
+public class RmiCallStatistics implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The upper bounds in milliseconds of the latency histogram buckets. The last bucket contains all
+   * slower calls.
+   */
+  public static final long[] BUCKET_LIMITS_MILLIS = { 1, 10, 100, 1000 };
+
+  private final Map<String, MethodStatistics> methods = new TreeMap<>();
+
+  /**
+   * Records one remote call.
+   * 
+   * @param method
+   *          The name of the method as interface name and method name separated by a dot
+   * @param nanos
+   *          The duration of the call in nanoseconds
+   */
+  public synchronized void record(String method, long nanos) {
+    MethodStatistics statistics = methods.get(method);
+    if (statistics == null) {
+      statistics = new MethodStatistics(method);
+      methods.put(method, statistics);
+    }
+    statistics.record(nanos);
+  }
+
+  /**
+   * Adds the calls recorded by <code>other</code> to this statistics.
+   * 
+   * @param other
+   *          The statistics to add
+   */
+  public synchronized void merge(RmiCallStatistics other) {
+    for (MethodStatistics otherStatistics : other.getMethods()) {
+      MethodStatistics statistics = methods.get(otherStatistics.getMethod());
+      if (statistics == null) {
+        statistics = new MethodStatistics(otherStatistics.getMethod());
+        methods.put(otherStatistics.getMethod(), statistics);
+      }
+      statistics.merge(otherStatistics);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if no call was recorded
+   */
+  public synchronized boolean isEmpty() {
+    return methods.isEmpty();
+  }
+
+  /**
+   * @return copies of the statistics of all called methods, the methods with the highest total
+   *         duration first
+   */
+  public synchronized List<MethodStatistics> getMethods() {
+    List<MethodStatistics> result = new ArrayList<>();
+    for (MethodStatistics statistics : methods.values()) {
+      result.add(statistics.copy());
+    }
+    Collections.sort(result,
+        (a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+    return result;
+  }
+
+  /**
+   * @param maxMethods
+   *          The maximal number of methods to list
+   * @return a summary with the total number and duration of the calls and the methods with the
+   *         highest total duration
+   */
+  public String getSummary(int maxMethods) {
+    List<MethodStatistics> all = getMethods();
+    long count = 0;
+    long nanos = 0;
+    for (MethodStatistics statistics : all) {
+      count += statistics.getCount();
+      nanos += statistics.getTotalNanos();
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("TPT API: %d remote calls of %d methods took %d ms", count, all.size(),
+        nanos / 1000000));
+    for (MethodStatistics statistics : all.subList(0, Math.min(maxMethods, all.size()))) {
+      sb.append(String.format("%n  %s: %d calls, %d ms total, %.2f ms average, %d ms max",
+          statistics.getMethod(), statistics.getCount(), statistics.getTotalMillis(),
+          statistics.getAverageMillis(), statistics.getMaxMillis()));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * The calls of a single interface method
+   */
+  public static class MethodStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String method;
+
+    private long count = 0;
+
+    private long totalNanos = 0;
+
+    private long maxNanos = 0;
+
+    private final long[] buckets = new long[BUCKET_LIMITS_MILLIS.length + 1];
+
+    MethodStatistics(String method) {
+      this.method = method;
+    }
+
+    void record(long nanos) {
+      count++;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+      int bucket = 0;
+      while (bucket < BUCKET_LIMITS_MILLIS.length
+          && nanos >= BUCKET_LIMITS_MILLIS[bucket] * 1000000) {
+        bucket++;
+      }
+      buckets[bucket]++;
+    }
+
+    void merge(MethodStatistics other) {
+      count += other.count;
+      totalNanos += other.totalNanos;
+      maxNanos = Math.max(maxNanos, other.maxNanos);
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] += other.buckets[i];
+      }
+    }
+
+    MethodStatistics copy() {
+      MethodStatistics copy = new MethodStatistics(method);
+      copy.merge(this);
+      return copy;
+    }
+
+    /**
+     * @return the name of the method as interface name and method name separated by a dot
+     */
+    public String getMethod() {
+      return method;
+    }
+
+    /**
+     * @return the number of calls
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return the total duration of all calls in nanoseconds
+     */
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /**
+     * @return the total duration of all calls in milliseconds
+     */
+    public long getTotalMillis() {
+      return totalNanos / 1000000;
+    }
+
+    /**
+     * @return the average duration of a call in milliseconds
+     */
+    public double getAverageMillis() {
+      return count == 0 ? 0 : totalNanos / 1000000.0 / count;
+    }
+
+    /**
+     * @return the duration of the slowest call in milliseconds
+     */
+    public long getMaxMillis() {
+      return maxNanos / 1000000;
+    }
+
+    /**
+     * @return the number of calls per latency bucket, see
+     *         {@link RmiCallStatistics#BUCKET_LIMITS_MILLIS}
+     */
+    public long[] getBuckets() {
+      return buckets.clone();
+    }
+  }
+}
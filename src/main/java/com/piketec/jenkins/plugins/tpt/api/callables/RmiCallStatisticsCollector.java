@@ -0,0 +1,14 @@
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+/**
+ * Receives the TPT API call statistics of a callable. An implementation on the Jenkins controller
+ * is exported to the agent via the remoting channel.
+ */
+public interface RmiCallStatisticsCollector {
+
+  /**
+   * @param statistics
+   *          The calls made by one callable
+   */
+  void add(RmiCallStatistics statistics);
+}
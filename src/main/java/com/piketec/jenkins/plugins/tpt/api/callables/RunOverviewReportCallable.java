@@ -55,16 +55,16 @@ public class RunOverviewReportCallable extends TptApiCallable<Boolean> {
   @Override
   public Boolean call() throws InterruptedException {
     TptLogger logger = getLogger();
-    TptApi api = getApi();
-    if (api == null) {
-      logger.error("Could not establish connection to the TPT API.");
-      return false;
-    }
-    Project project = getOpenProject(logger, api, tptFilePath);
-    if (project == null) {
-      return false;
-    }
     try {
+      TptApi api = getApi();
+      if (api == null) {
+        logger.error("Could not establish connection to the TPT API.");
+        return false;
+      }
+      Project project = getOpenProject(logger, api, tptFilePath);
+      if (project == null) {
+        return false;
+      }
       // Get the execution cofig that should be executed
       ExecutionConfiguration executionConfig =
           getExecutionConfigByName(project, executionConfigName);
@@ -130,6 +130,8 @@ public class RunOverviewReportCallable extends TptApiCallable<Boolean> {
     } catch (ApiException e) {
       logger.error("ApiException: " + e.getMessage());
       return false;
+    } finally {
+      releaseApi();
     }
   }
 
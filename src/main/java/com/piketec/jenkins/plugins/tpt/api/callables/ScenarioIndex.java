@@ -0,0 +1,250 @@
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.piketec.tpt.api.RemoteList;
+import com.piketec.tpt.api.Scenario;
+import com.piketec.tpt.api.ScenarioGroup;
+import com.piketec.tpt.api.ScenarioOrGroup;
+import com.piketec.tpt.api.TptApi;
+import com.piketec.tpt.api.util.WalkResult;
+
+/**
+ * Snapshot of the test cases of a TPT project. The scenario groups are traversed once via
+ * {@link TptApi#walkScenarios(ScenarioGroup)} and the ID and name of every test case are requested
+ * once, so that later lookups by name, by ID or of the name of a test case need no remote calls.
+ * The TPT API offers no bulk access to names or IDs, so the snapshot is kept for the open project
+ * by the {@link TptProjectCache} and shared by all callables using the project. It is not changed
+ * after it was created.
+ */
+class ScenarioIndex {
+
+  private final Map<String, Scenario> scenariosById = new HashMap<>();
+
+  private final Map<String, String> namesById = new HashMap<>();
+
+  private final Map<String, List<String>> idsByName = new HashMap<>();
+
+  /**
+   * the IDs of the test cases by their remote reference, which is compared locally
+   */
+  private final Map<Scenario, String> ids = new HashMap<>();
+
+  private final List<ScenarioOrGroup> topLevelItems = new ArrayList<>();
+
+  private final Map<ScenarioGroup, List<ScenarioOrGroup>> groupItems = new HashMap<>();
+
+  private final Map<ScenarioGroup, Integer> groupSizes = new HashMap<>();
+
+  private ScenarioIndex() {
+  }
+
+  /**
+   * Reads all test cases of the given top level test cases and groups
+   * 
+   * @param api
+   *          The TPT API the project is opened with
+   * @param topLevelScenarioOrGroup
+   *          The contents of the top level scenario group of the project
+   * @return the snapshot
+   * @throws RemoteException
+   *           remote communication problem
+   */
+  static ScenarioIndex create(TptApi api, RemoteList<ScenarioOrGroup> topLevelScenarioOrGroup)
+      throws RemoteException {
+    ScenarioIndex index = new ScenarioIndex();
+    for (ScenarioOrGroup sog : topLevelScenarioOrGroup.getItems()) {
+      index.topLevelItems.add(sog);
+      if (sog instanceof Scenario) {
+        index.add((Scenario)sog);
+      } else {
+        for (WalkResult<ScenarioGroup, ScenarioGroup, Scenario> walkResult : api
+            .walkScenarios((ScenarioGroup)sog)) {
+          List<ScenarioOrGroup> items = new ArrayList<>(walkResult.getGroups());
+          items.addAll(walkResult.getElements());
+          index.groupItems.put(walkResult.getRoot(), items);
+          for (Scenario scenario : walkResult.getElements()) {
+            index.add(scenario);
+          }
+        }
+      }
+    }
+    for (ScenarioGroup group : index.groupItems.keySet()) {
+      index.getSize(group);
+    }
+    return index;
+  }
+
+  private void add(Scenario scenario) throws RemoteException {
+    String id = scenario.getIdString();
+    String name = scenario.getName();
+    ids.put(scenario, id);
+    scenariosById.put(id, scenario);
+    namesById.put(id, name);
+    idsByName.computeIfAbsent(name, k -> new ArrayList<>()).add(id);
+  }
+
+  /**
+   * @return the number of test cases in the snapshot
+   */
+  int size() {
+    return scenariosById.size();
+  }
+
+  /**
+   * @param testCaseNames
+   *          The names to look for
+   * @return all test cases with one of the given names
+   */
+  Collection<Scenario> find(Collection<String> testCaseNames) {
+    Collection<Scenario> result = new HashSet<>();
+    for (String name : new HashSet<>(testCaseNames)) {
+      List<String> scenarioIds = idsByName.get(name);
+      if (scenarioIds != null) {
+        for (String id : scenarioIds) {
+          result.add(scenariosById.get(id));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param id
+   *          The ID of a test case, see {@link ScenarioOrGroup#getIdString()}
+   * @return the test case with the given ID or <code>null</code> if the snapshot has no such test
+   *         case
+   */
+  Scenario getById(String id) {
+    return scenariosById.get(id);
+  }
+
+  /**
+   * @param scenario
+   *          A test case of the project
+   * @return the ID of the test case. Only test cases not contained in the snapshot cause a remote
+   *         call.
+   * @throws RemoteException
+   *           remote communication problem
+   */
+  String getId(Scenario scenario) throws RemoteException {
+    String id = ids.get(scenario);
+    return id == null ? scenario.getIdString() : id;
+  }
+
+  /**
+   * @param scenario
+   *          A test case of the project
+   * @return the name of the test case. Only test cases not contained in the snapshot cause a remote
+   *         call.
+   * @throws RemoteException
+   *           remote communication problem
+   */
+  String getName(Scenario scenario) throws RemoteException {
+    String id = ids.get(scenario);
+    return id == null ? scenario.getName() : namesById.get(id);
+  }
+
+  /**
+   * Determines the smallest number of test cases and groups that contain exactly the given test
+   * cases. A group is used instead of its test cases if all test cases of the group are given.
+   * 
+   * @param scenarios
+   *          Test cases of the project
+   * @return the test cases and groups to add to a test set
+   */
+  List<ScenarioOrGroup> cover(Collection<Scenario> scenarios) {
+    Set<Scenario> selected = new HashSet<>(scenarios);
+    Map<ScenarioGroup, Integer> selectedCounts = new HashMap<>();
+    List<ScenarioOrGroup> result = new ArrayList<>();
+    for (ScenarioOrGroup sog : topLevelItems) {
+      cover(sog, selected, selectedCounts, result);
+    }
+    return result;
+  }
+
+  private void cover(ScenarioOrGroup sog, Set<Scenario> selected,
+                     Map<ScenarioGroup, Integer> selectedCounts, List<ScenarioOrGroup> result) {
+    if (sog instanceof Scenario) {
+      if (selected.contains(sog)) {
+        result.add(sog);
+      }
+      return;
+    }
+    ScenarioGroup group = (ScenarioGroup)sog;
+    int selectedCount = countSelected(group, selected, selectedCounts);
+    if (selectedCount == 0) {
+      return;
+    }
+    if (selectedCount == getSize(group)) {
+      result.add(group);
+      return;
+    }
+    for (ScenarioOrGroup item : getItems(group)) {
+      cover(item, selected, selectedCounts, result);
+    }
+  }
+
+  private List<ScenarioOrGroup> getItems(ScenarioGroup group) {
+    List<ScenarioOrGroup> items = groupItems.get(group);
+    return items == null ? new ArrayList<>() : items;
+  }
+
+  /**
+   * @return the number of test cases in the group and its sub groups
+   */
+  private int getSize(ScenarioGroup group) {
+    Integer size = groupSizes.get(group);
+    if (size == null) {
+      size = 0;
+      for (ScenarioOrGroup item : getItems(group)) {
+        size += item instanceof Scenario ? 1 : getSize((ScenarioGroup)item);
+      }
+      groupSizes.put(group, size);
+    }
+    return size;
+  }
+
+  /**
+   * @return the number of selected test cases in the group and its sub groups
+   */
+  private int countSelected(ScenarioGroup group, Set<Scenario> selected,
+                            Map<ScenarioGroup, Integer> selectedCounts) {
+    Integer count = selectedCounts.get(group);
+    if (count == null) {
+      count = 0;
+      for (ScenarioOrGroup item : getItems(group)) {
+        if (item instanceof Scenario) {
+          count += selected.contains(item) ? 1 : 0;
+        } else {
+          count += countSelected((ScenarioGroup)item, selected, selectedCounts);
+        }
+      }
+      selectedCounts.put(group, count);
+    }
+    return count;
+  }
+
+  /**
+   * @param scenarios
+   *          Test cases of the project
+   * @return the names of the given test cases
+   * @throws RemoteException
+   *           remote communication problem
+   */
+  Set<String> getNames(Collection<Scenario> scenarios) throws RemoteException {
+    Set<String> result = new HashSet<>();
+    for (Scenario scenario : scenarios) {
+      result.add(getName(scenario));
+    }
+    return result;
+  }
+
+}
@@ -25,6 +25,7 @@ import com.piketec.tpt.api.ApiException;
 import com.piketec.tpt.api.ExecutionConfiguration;
 import com.piketec.tpt.api.OpenResult;
 import com.piketec.tpt.api.Project;
+import com.piketec.tpt.api.TestSet;
 import com.piketec.tpt.api.TptApi;
 
 import hudson.FilePath;
@@ -44,6 +45,14 @@ public abstract class TptApiCallable<S> implements Callable<S, InterruptedExcept
 
   private static final long serialVersionUID = 1L;
 
+  /**
+   * The first interval in milliseconds TPT is polled while starting. It is doubled after every poll
+   * up to {@link #MAX_STARTUP_POLL_INTERVAL}.
+   */
+  private static final long INITIAL_STARTUP_POLL_INTERVAL = 250;
+
+  private static final long MAX_STARTUP_POLL_INTERVAL = 5000;
+
   private TaskListener listener;
 
   private String hostName;
@@ -58,6 +67,22 @@ public abstract class TptApiCallable<S> implements Callable<S, InterruptedExcept
 
   private long startUpWaitTime;
 
+  @CheckForNull
+  private TptProcessPoolConfig processPoolConfig = null;
+
+  /**
+   * The key of the TPT instance leased from the {@link TptProcessPool} while this callable runs
+   */
+  private transient String leasedKey = null;
+
+  @CheckForNull
+  private RmiCallStatisticsCollector statisticsCollector = null;
+
+  /**
+   * The calls to the TPT API returned by {@link #getApi()}
+   */
+  private transient RmiCallStatistics callStatistics = null;
+
   public TptApiCallable(TaskListener listener, int tptPort, String tptBindingName,
                         FilePath[] exePaths, List<String> arguments, long startUpWaitTime) {
     this.listener = listener;
@@ -81,9 +106,29 @@ public abstract class TptApiCallable<S> implements Callable<S, InterruptedExcept
     return new TptLogger(listener.getLogger());
   }
 
+  /**
+   * @param processPoolConfig
+   *          the settings for the TPT instances kept alive on the agent or <code>null</code> to
+   *          keep the settings of the agent
+   */
+  public void setProcessPoolConfig(@CheckForNull TptProcessPoolConfig processPoolConfig) {
+    this.processPoolConfig = processPoolConfig;
+  }
+
+  /**
+   * @param statisticsCollector
+   *          the collector to report the TPT API calls to when the API is released or
+   *          <code>null</code>. Has to be exported to the agent.
+   */
+  public void setStatisticsCollector(@CheckForNull RmiCallStatisticsCollector statisticsCollector) {
+    this.statisticsCollector = statisticsCollector;
+  }
+
   /**
    * Starts TPT if necessary and returns a TPT API connection for the settings given in the
-   * constructor
+   * constructor. A TPT instance started by the plugin is kept alive in the {@link TptProcessPool}
+   * of the agent and reused by the following builds. The instance is leased until
+   * {@link #releaseApi()} is called.
    * 
    * @return the handle to the api
    * @throws InterruptedException
@@ -93,16 +138,75 @@ public abstract class TptApiCallable<S> implements Callable<S, InterruptedExcept
     TptLogger logger = getLogger();
     logger.info("Try to connect to " + hostName + ":" + tptPort);
     logger.info("TPT Binding name: " + tptBindingName);
-    TptApi api = getApiIfTptIsOpen();
-    if (api != null) {
+    TptProcessPool pool = TptProcessPool.getInstance();
+    String key = TptProcessPool.getKey(hostName, tptPort, tptBindingName);
+    synchronized (pool.getLock(key)) {
+      String retireReason = pool.retireIfExpired(key);
+      if (retireReason != null) {
+        logger.info(retireReason);
+      }
+      TptApi api = getApiIfTptIsOpen();
+      if (api != null && !isHealthy(api)) {
+        if (pool.discard(key)) {
+          logger.error("TPT does not respond properly and was closed.");
+          api = null;
+        } else {
+          logger.warn("TPT does not respond properly but was not started by Jenkins.");
+        }
+      }
+      if (api == null) {
+        // start TPT and try again
+        Process process = startTpt(startUpWaitTime);
+        if (process == null) {
+          logger.error("Could not start TPT");
+          return null;
+        }
+        // a launcher that already exited cannot be pooled
+        if (process.isAlive()) {
+          pool.register(key, hostName, tptPort, tptBindingName, process);
+        }
+        api = getApiIfTptIsOpen();
+      }
+      if (api != null) {
+        pool.lease(key, processPoolConfig);
+        leasedKey = key;
+        callStatistics = new RmiCallStatistics();
+        api = TptApiInstrumentation.instrument(api, callStatistics);
+      }
       return api;
     }
-    // start TPT and try again
-    if (!startTpt(startUpWaitTime)) {
-      logger.error("Could not start TPT");
-      return null;
+  }
+
+  /**
+   * Ends the lease of the TPT instance returned by {@link #getApi()}, so it may be closed by the
+   * {@link TptProcessPool} of the agent when it is unused for too long. The calls made to the API
+   * are logged and reported to the statistics collector.
+   */
+  protected void releaseApi() {
+    if (leasedKey != null) {
+      TptProcessPool.getInstance().release(leasedKey);
+      leasedKey = null;
+    }
+    if (callStatistics != null && !callStatistics.isEmpty()) {
+      TptLogger logger = getLogger();
+      logger.info(callStatistics.getSummary(10));
+      if (statisticsCollector != null) {
+        try {
+          statisticsCollector.add(callStatistics);
+        } catch (RuntimeException e) {
+          logger.warn("Could not report TPT API call statistics: " + e.getMessage());
+        }
+      }
+    }
+    callStatistics = null;
+  }
+
+  private static boolean isHealthy(TptApi api) {
+    try {
+      return api.isReady();
+    } catch (RemoteException e) {
+      return false;
     }
-    return getApiIfTptIsOpen();
   }
 
   /**
@@ -135,7 +239,11 @@ public abstract class TptApiCallable<S> implements Callable<S, InterruptedExcept
     return remoteApi;
   }
 
-  private boolean startTpt(long startupWaitTime) throws InterruptedException {
+  /**
+   * @return the started TPT process or <code>null</code> if TPT could not be started
+   */
+  @CheckForNull
+  private Process startTpt(long startupWaitTime) throws InterruptedException {
     TptLogger logger = getLogger();
     FilePath exeFile = null;
     for (FilePath f : exePaths) {
@@ -152,14 +260,14 @@ public abstract class TptApiCallable<S> implements Callable<S, InterruptedExcept
     try {
       if (exeFile == null) {
         logger.error("TPT exe not found!");
-        return false;
+        return null;
       } else if (!exeFile.exists()) {
         logger.error("TPT exe not found: " + exeFile.getRemote());
-        return false;
+        return null;
       }
     } catch (IOException e1) {
       logger.error("Could not determine existence of TPT: " + exeFile.getRemote());
-      return false;
+      return null;
     }
     ProcessBuilder builder = null;
     List<String> cmd = new ArrayList<>();
@@ -184,41 +292,109 @@ public abstract class TptApiCallable<S> implements Callable<S, InterruptedExcept
       builder = new ProcessBuilder(cmd);
 
     }
-    logger.info("Waiting " + startupWaitTime / 1000 + "s for TPT to start.");
+    logger.info("Waiting up to " + startupWaitTime / 1000 + "s for TPT to start.");
     TPTProcessOutputReaderThread outputThread = null;
     TPTProcessOutputReaderThread errorThread = null;
+    Process p;
     try {
-      Process p = builder.start();
+      p = builder.start();
       outputThread = new TPTProcessOutputReaderThread(p.getInputStream(), false, logger);
       errorThread = new TPTProcessOutputReaderThread(p.getErrorStream(), true, logger);
     } catch (IOException e) {
       logger.error("Could not start TPT.");
-      return false;
+      return null;
     }
     try {
-      Thread.sleep(startupWaitTime);
+      return waitUntilReady(p, startupWaitTime) ? p : null;
     } finally {
       outputThread.stopOutputForwarding();
       errorThread.stopOutputForwarding();
       logger.info("Logging output of TPT process stopped.");
     }
-    return true;
   }
 
   /**
-   * Open the given TPT Project via the TPT API
+   * Polls the RMI registry with exponential backoff until TPT is bound and reports to be ready. The
+   * startup wait time is only an upper bound.
+   * 
+   * @return <code>false</code> if the TPT process terminated with an error before it was ready
+   */
+  private boolean waitUntilReady(Process p, long startupWaitTime) throws InterruptedException {
+    TptLogger logger = getLogger();
+    long startTime = System.currentTimeMillis();
+    long deadline = startTime + startupWaitTime;
+    long pollInterval = INITIAL_STARTUP_POLL_INTERVAL;
+    boolean processExited = false;
+    while (true) {
+      if (!processExited && !p.isAlive()) {
+        // A launcher may hand over to the actual TPT process and exit successfully
+        processExited = true;
+        if (p.exitValue() != 0) {
+          logger.error("TPT process terminated with exit code " + p.exitValue() + ".");
+          return false;
+        }
+      }
+      if (isReady()) {
+        logger.info("TPT is ready after " + (System.currentTimeMillis() - startTime) / 1000 + "s.");
+        return true;
+      }
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        logger.info("TPT did not report to be ready within " + startupWaitTime / 1000 + "s.");
+        // let the caller try to connect anyway
+        return true;
+      }
+      Thread.sleep(Math.min(pollInterval, remaining));
+      pollInterval = Math.min(pollInterval * 2, MAX_STARTUP_POLL_INTERVAL);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if TPT is bound in the RMI registry and ready to accept API calls
+   */
+  private boolean isReady() {
+    try {
+      Registry registry = LocateRegistry.getRegistry(hostName, tptPort);
+      return ((TptApi)registry.lookup(tptBindingName)).isReady();
+    } catch (RemoteException | NotBoundException e) {
+      // not started yet
+      return false;
+    }
+  }
+
+  /**
+   * Open the given TPT Project via the TPT API. A project that is already open is reused unless its
+   * file changed since the plugin opened it, see {@link TptProjectCache}.
    */
   @CheckForNull
   Project getOpenProject(TptLogger logger, TptApi api, FilePath tptFilePath) {
-    // Open the TPT Project via the TPT-API
-    OpenResult openProject = null;
+    File file = new File(tptFilePath.getRemote());
+    TptProjectCache cache = TptProjectCache.getInstance();
+    String key = getProjectKey(file);
     try {
-      openProject = api.openProject(new File(tptFilePath.getRemote()));
-      if (openProject.getProject() == null) {
-        logger.error("Could not open project:\n" + Utils.toString(openProject.getLogs(), "\n"));
-        return null;
+      synchronized (cache.getLock(key)) {
+        Project alreadyOpen = findOpenProject(api, file);
+        if (alreadyOpen != null) {
+          if (cache.isUpToDate(key, file)) {
+            logger.info("Reuse already open project " + file.getName());
+            cache.opened(key, file);
+            return alreadyOpen;
+          }
+          logger.info(file.getName() + " changed since it was opened. Open it again.");
+          alreadyOpen.closeProject();
+        }
+        // the scenario index of a previously opened project is outdated
+        cache.closed(key);
+        // Open the TPT Project via the TPT-API
+        OpenResult openProject = api.openProject(file);
+        if (openProject.getProject() == null) {
+          cache.closed(key);
+          logger.error("Could not open project:\n" + Utils.toString(openProject.getLogs(), "\n"));
+          return null;
+        }
+        cache.opened(key, file);
+        return openProject.getProject();
       }
-      return openProject.getProject();
     } catch (RemoteException e) {
       logger.error("RemoteException: " + e.getMessage());
       return null;
@@ -228,22 +404,62 @@ public abstract class TptApiCallable<S> implements Callable<S, InterruptedExcept
     }
   }
 
+  /**
+   * Returns the index of the test cases of a project opened with
+   * {@link #getOpenProject(TptLogger, TptApi, FilePath)}. The index is created once and reused by
+   * all following callables until the project is closed or opened again.
+   */
+  ScenarioIndex getScenarioIndex(TptLogger logger, TptApi api, Project project,
+                                 FilePath tptFilePath)
+      throws RemoteException {
+    TptProjectCache cache = TptProjectCache.getInstance();
+    String key = getProjectKey(new File(tptFilePath.getRemote()));
+    synchronized (cache.getLock(key)) {
+      ScenarioIndex scenarioIndex = cache.getScenarioIndex(key);
+      if (scenarioIndex != null) {
+        logger.info("Reuse index of " + scenarioIndex.size() + " test cases");
+        return scenarioIndex;
+      }
+      scenarioIndex =
+          ScenarioIndex.create(api, project.getTopLevelTestlet().getTopLevelScenarioOrGroup());
+      cache.putScenarioIndex(key, scenarioIndex);
+      return scenarioIndex;
+    }
+  }
+
+  /**
+   * @return the key of the project of the given file in the TPT instance of this callable
+   */
+  private String getProjectKey(File file) {
+    return TptProjectCache.getKey(TptProcessPool.getKey(hostName, tptPort, tptBindingName), file);
+  }
+
   /**
    * Close the given TPT Project if it is open.
    */
   boolean closeProject(TptLogger logger, TptApi api, FilePath tptFilePath) {
     // Open the TPT Project via the TPT-API
     File file = new File(tptFilePath.getRemote());
+    TptProjectCache cache = TptProjectCache.getInstance();
+    String key = getProjectKey(file);
     try {
-      Collection<Project> openProjects = api.getOpenProjects();
-      for (Project project : openProjects) {
-        File tptFile = project.getFile();
-        if (tptFile == null || !tptFile.equals(file)) {
-          continue;
+      synchronized (cache.getLock(key)) {
+        Project project = findOpenProject(api, file);
+        if (project != null) {
+          // the project is never saved, but the test sets must not outlive the build in any case
+          for (TestSet testSet : project.getTestSets().getItems()) {
+            if (testSet.getName()
+                .startsWith(ExecuteTestsWorkerJobCallable.TEMPORARY_TEST_SET_PREFIX)) {
+              logger.info("delete temporary test set \"" + testSet.getName() + "\"");
+              project.getTestSets().delete(testSet);
+            }
+          }
+          logger.info("Close project " + file.getName());
+          project.closeProject();
+          cache.closed(key);
+          return true;
         }
-        logger.info("Close project " + tptFile.getName());
-        project.closeProject();
-        return true;
+        cache.closed(key);
       }
     } catch (RemoteException | ApiException e) {
       logger.error("Could not close " + file.getName() + ": " + e.getMessage());
@@ -253,6 +469,20 @@ public abstract class TptApiCallable<S> implements Callable<S, InterruptedExcept
     return true;
   }
 
+  /**
+   * @return the open project of the given file or <code>null</code> if the file is not open
+   */
+  @CheckForNull
+  private static Project findOpenProject(TptApi api, File file) throws RemoteException {
+    for (Project project : api.getOpenProjects()) {
+      File tptFile = project.getFile();
+      if (tptFile != null && tptFile.equals(file)) {
+        return project;
+      }
+    }
+    return null;
+  }
+
   /**
    * Looks in the Tpt project if there is such Execution Configuration
    * 
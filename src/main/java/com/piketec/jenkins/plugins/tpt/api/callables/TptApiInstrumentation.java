@@ -0,0 +1,171 @@
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.piketec.tpt.api.OpenResult;
+import com.piketec.tpt.api.Project;
+import com.piketec.tpt.api.ResultAndLogs;
+import com.piketec.tpt.api.TptApi;
+import com.piketec.tpt.api.TptRemote;
+import com.piketec.tpt.api.util.WalkResult;
+
+/**
+ * Wraps the TPT API and every remote object returned by it into dynamic proxies that record each
+ * call in a {@link RmiCallStatistics}. Remote objects contained in returned collections, walk
+ * results and open results are wrapped as well. Proxies passed as arguments are unwrapped before
+ * the call, so the TPT API only ever sees its own remote objects.
+ */
+class TptApiInstrumentation {
+
+  private TptApiInstrumentation() {
+  }
+
+  /**
+   * @param api
+   *          The TPT API to instrument
+   * @param statistics
+   *          to record the calls in
+   * @return the instrumented TPT API
+   */
+  static TptApi instrument(TptApi api, RmiCallStatistics statistics) {
+    return (TptApi)wrap(api, statistics);
+  }
+
+  private static Object wrap(Object value, RmiCallStatistics statistics) {
+    if (value == null || Proxy.isProxyClass(value.getClass())
+        && Proxy.getInvocationHandler(value) instanceof Handler) {
+      return value;
+    }
+    if (value instanceof TptRemote) {
+      List<Class< ? >> interfaces = new ArrayList<>();
+      collectInterfaces(value.getClass(), interfaces);
+      return Proxy.newProxyInstance(TptApiInstrumentation.class.getClassLoader(),
+          interfaces.toArray(new Class< ? >[0]),
+          new Handler(value, interfaces.get(0).getSimpleName(), statistics));
+    }
+    if (value instanceof OpenResult) {
+      OpenResult openResult = (OpenResult)value;
+      return new OpenResult((Project)wrap(openResult.getProject(), statistics),
+          openResult.getLogs());
+    }
+    if (value instanceof ResultAndLogs) {
+      ResultAndLogs< ? > resultAndLogs = (ResultAndLogs< ? >)value;
+      return new ResultAndLogs<>(wrap(resultAndLogs.getResult(), statistics),
+          resultAndLogs.getLog());
+    }
+    if (value instanceof WalkResult) {
+      WalkResult< ? , ? , ? > walkResult = (WalkResult< ? , ? , ? >)value;
+      return new WalkResult<>(wrap(walkResult.getRoot(), statistics),
+          wrapAll(walkResult.getGroups(), statistics, new ArrayList<>()),
+          wrapAll(walkResult.getElements(), statistics, new ArrayList<>()));
+    }
+    if (value instanceof Set) {
+      return wrapAll((Set< ? >)value, statistics, new LinkedHashSet<>());
+    }
+    if (value instanceof Iterable) {
+      return wrapAll((Iterable< ? >)value, statistics, new ArrayList<>());
+    }
+    return value;
+  }
+
+  private static <C extends Collection<Object>> C wrapAll(Iterable< ? > values,
+                                                        RmiCallStatistics statistics, C result) {
+    for (Object value : values) {
+      result.add(wrap(value, statistics));
+    }
+    return result;
+  }
+
+  private static Object unwrap(Object value) {
+    if (value != null && Proxy.isProxyClass(value.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(value);
+      if (handler instanceof Handler) {
+        return ((Handler)handler).target;
+      }
+    }
+    if (value instanceof List) {
+      List<Object> result = new ArrayList<>();
+      for (Object item : (List< ? >)value) {
+        result.add(unwrap(item));
+      }
+      return result;
+    }
+    if (value instanceof Set) {
+      Set<Object> result = new LinkedHashSet<>();
+      for (Object item : (Set< ? >)value) {
+        result.add(unwrap(item));
+      }
+      return result;
+    }
+    return value;
+  }
+
+  /**
+   * Collects the remote interfaces implemented by the given class, the most specific ones first.
+   */
+  private static void collectInterfaces(Class< ? > type, List<Class< ? >> interfaces) {
+    for (Class< ? > c = type; c != null; c = c.getSuperclass()) {
+      for (Class< ? > i : c.getInterfaces()) {
+        if (TptRemote.class.isAssignableFrom(i) && !interfaces.contains(i)) {
+          interfaces.add(i);
+        }
+      }
+    }
+  }
+
+  /**
+   * Records the calls of one remote object
+   */
+  private static class Handler implements InvocationHandler {
+
+    private final Object target;
+
+    private final String typeName;
+
+    private final RmiCallStatistics statistics;
+
+    Handler(Object target, String typeName, RmiCallStatistics statistics) {
+      this.target = target;
+      this.typeName = typeName;
+      this.statistics = statistics;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getDeclaringClass() == Object.class) {
+        // equals, hashCode and toString are answered locally by the RMI stub
+        if ("equals".equals(method.getName())) {
+          return target.equals(unwrap(args[0]));
+        }
+        return method.invoke(target, args);
+      }
+      Object[] unwrappedArgs = null;
+      if (args != null) {
+        unwrappedArgs = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+          unwrappedArgs[i] = unwrap(args[i]);
+        }
+      }
+      long start = System.nanoTime();
+      Object result;
+      try {
+        result = method.invoke(target, unwrappedArgs);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      } finally {
+        statistics.record(typeName + "." + method.getName(), System.nanoTime() - start);
+      }
+      Object wrapped = wrap(result, statistics);
+      // e.g. a serializable iterable class has to be returned as it is
+      return method.getReturnType().isInstance(wrapped) ? wrapped : result;
+    }
+  }
+}
@@ -0,0 +1,273 @@
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.CheckForNull;
+
+import com.piketec.tpt.api.TptApi;
+
+/**
+ * Keeps track of the TPT instances the plugin started on an agent, so they can be reused by the
+ * following builds instead of starting TPT for every build. This class lives in the JVM of the
+ * agent. A TPT instance is identified by host, port and binding name. While a callable uses an
+ * instance, the instance is leased and will not be closed. Unused instances are closed if they were
+ * not used for the configured idle timeout, if they exceed their maximal lifetime or if more
+ * instances than the configured pool size are alive. TPT instances that were not started by the
+ * plugin are used but never closed.
+ */
+final class TptProcessPool {
+
+  /**
+   * The interval in milliseconds the pool looks for instances to close
+   */
+  private static final long EVICTION_INTERVAL = 30000;
+
+  /**
+   * The time in milliseconds a TPT instance gets to exit after it was asked to close
+   */
+  private static final long SHUTDOWN_WAIT_TIME = 10000;
+
+  private static final TptProcessPool INSTANCE = new TptProcessPool();
+
+  private final Map<String, PooledTpt> instances = new HashMap<>();
+
+  private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+  private int poolSize = 0;
+
+  private ScheduledExecutorService evictor = null;
+
+  private TptProcessPool() {
+  }
+
+  /**
+   * @return the pool of this agent
+   */
+  static TptProcessPool getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the key of the TPT instance reachable with the given settings
+   */
+  static String getKey(String hostName, int tptPort, String tptBindingName) {
+    return hostName + ":" + tptPort + "/" + tptBindingName;
+  }
+
+  /**
+   * @return an object to synchronize on while starting, checking or closing the TPT instance with
+   *         the given key
+   */
+  Object getLock(String key) {
+    return locks.computeIfAbsent(key, k -> new Object());
+  }
+
+  /**
+   * Adds a TPT instance started by the plugin to the pool. If the pool is full, the longest unused
+   * instances are closed in the background.
+   */
+  synchronized void register(String key, String hostName, int tptPort, String tptBindingName,
+                             Process process) {
+    instances.put(key, new PooledTpt(key, hostName, tptPort, tptBindingName, process));
+    if (evictor == null) {
+      evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "TPT process pool eviction");
+        thread.setDaemon(true);
+        return thread;
+      });
+      evictor.scheduleWithFixedDelay(this::evict, EVICTION_INTERVAL, EVICTION_INTERVAL,
+          TimeUnit.MILLISECONDS);
+    }
+    if (poolSize > 0 && instances.size() > poolSize) {
+      evictor.execute(this::evict);
+    }
+  }
+
+  /**
+   * Marks the TPT instance with the given key as used until {@link #release(String)} is called and
+   * applies the settings of the leasing build. Nothing happens if the instance was not started by
+   * the plugin.
+   */
+  synchronized void lease(String key, @CheckForNull TptProcessPoolConfig config) {
+    if (config != null && config.getPoolSize() > 0) {
+      poolSize = config.getPoolSize();
+    }
+    PooledTpt pooled = instances.get(key);
+    if (pooled == null) {
+      return;
+    }
+    pooled.leases++;
+    pooled.lastUsed = System.currentTimeMillis();
+    if (config != null) {
+      pooled.idleTimeout = config.getIdleTimeout();
+      pooled.maxLifetime = config.getMaxLifetime();
+    }
+  }
+
+  /**
+   * Ends a lease started with {@link #lease(String, TptProcessPoolConfig)}
+   */
+  synchronized void release(String key) {
+    PooledTpt pooled = instances.get(key);
+    if (pooled != null && pooled.leases > 0) {
+      pooled.leases--;
+      pooled.lastUsed = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Closes the unused TPT instance with the given key if it exceeded its maximal lifetime or if its
+   * process terminated. Has to be called while holding the lock of the key.
+   * 
+   * @return a message why the instance was closed or <code>null</code> if it is still usable
+   */
+  @CheckForNull
+  String retireIfExpired(String key) {
+    PooledTpt pooled;
+    String reason;
+    synchronized (this) {
+      pooled = instances.get(key);
+      if (pooled == null || pooled.leases > 0) {
+        return null;
+      }
+      if (!pooled.process.isAlive()) {
+        reason = "TPT process terminated with exit code " + pooled.process.exitValue() + ".";
+      } else if (pooled.isExpired(System.currentTimeMillis())) {
+        reason = "TPT exceeded its maximal lifetime and will be restarted.";
+      } else {
+        return null;
+      }
+      instances.remove(key);
+    }
+    pooled.shutdown();
+    return reason;
+  }
+
+  /**
+   * Closes the TPT instance with the given key because it does not respond properly. Has to be
+   * called while holding the lock of the key.
+   * 
+   * @return <code>true</code> if the instance was started by the plugin and has been closed
+   */
+  boolean discard(String key) {
+    PooledTpt pooled;
+    synchronized (this) {
+      pooled = instances.remove(key);
+    }
+    if (pooled == null) {
+      return false;
+    }
+    pooled.shutdown();
+    return true;
+  }
+
+  /**
+   * Closes the unused instances that are idle for too long, exceeded their lifetime or do not fit
+   * into the pool anymore. Only one lock of a key is held at a time.
+   */
+  private void evict() {
+    List<PooledTpt> unused = new ArrayList<>();
+    synchronized (this) {
+      for (PooledTpt pooled : instances.values()) {
+        if (pooled.leases == 0) {
+          unused.add(pooled);
+        }
+      }
+    }
+    // the longest unused instances are closed first if the pool is too large
+    unused.sort((a, b) -> Long.compare(a.lastUsed, b.lastUsed));
+    for (PooledTpt candidate : unused) {
+      synchronized (getLock(candidate.key)) {
+        synchronized (this) {
+          long now = System.currentTimeMillis();
+          boolean tooMany = poolSize > 0 && instances.size() > poolSize;
+          // it may have been leased again in the meantime
+          if (instances.get(candidate.key) != candidate || candidate.leases > 0
+              || !(tooMany || candidate.isIdle(now) || candidate.isExpired(now))) {
+            continue;
+          }
+          instances.remove(candidate.key);
+        }
+        candidate.shutdown();
+      }
+    }
+  }
+
+  /**
+   * A TPT instance started by the plugin
+   */
+  private static class PooledTpt {
+
+    private final String key;
+
+    private final String hostName;
+
+    private final int tptPort;
+
+    private final String tptBindingName;
+
+    private final Process process;
+
+    private final long startTime;
+
+    private long lastUsed;
+
+    private int leases = 0;
+
+    private long idleTimeout = 0;
+
+    private long maxLifetime = 0;
+
+    PooledTpt(String key, String hostName, int tptPort, String tptBindingName, Process process) {
+      this.key = key;
+      this.hostName = hostName;
+      this.tptPort = tptPort;
+      this.tptBindingName = tptBindingName;
+      this.process = process;
+      this.startTime = System.currentTimeMillis();
+      this.lastUsed = startTime;
+    }
+
+    boolean isIdle(long now) {
+      return idleTimeout > 0 && now - lastUsed > idleTimeout;
+    }
+
+    boolean isExpired(long now) {
+      return maxLifetime > 0 && now - startTime > maxLifetime;
+    }
+
+    /**
+     * Asks TPT to close and kills the process if it does not exit in time
+     */
+    void shutdown() {
+      if (process.isAlive()) {
+        try {
+          Registry registry = LocateRegistry.getRegistry(hostName, tptPort);
+          ((TptApi)registry.lookup(tptBindingName)).closeTpt();
+        } catch (RemoteException | NotBoundException e) {
+          // TPT does not respond, kill it
+        }
+        try {
+          if (!process.waitFor(SHUTDOWN_WAIT_TIME, TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+          }
+        } catch (InterruptedException e) {
+          process.destroyForcibly();
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,59 @@
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+import java.io.Serializable;
+
+/**
+ * Settings for the TPT instances a build leases from the {@link TptProcessPool} of an agent.
+ */
+public class TptProcessPoolConfig implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int poolSize;
+
+  private final long idleTimeout;
+
+  private final long maxLifetime;
+
+  /**
+   * @param poolSize
+   *          The maximal number of TPT instances started by the plugin that are kept alive on an
+   *          agent. A value less or equal zero means no limit.
+   * @param idleTimeout
+   *          The time in milliseconds after which an unused TPT instance is closed. A value less or
+   *          equal zero means unused TPT instances are kept alive.
+   * @param maxLifetime
+   *          The time in milliseconds after which a TPT instance is closed as soon as it is not used
+   *          anymore. A value less or equal zero means no limit.
+   */
+  public TptProcessPoolConfig(int poolSize, long idleTimeout, long maxLifetime) {
+    this.poolSize = poolSize;
+    this.idleTimeout = idleTimeout;
+    this.maxLifetime = maxLifetime;
+  }
+
+  /**
+   * @return The maximal number of TPT instances kept alive on an agent, no limit if less or equal
+   *         zero
+   */
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  /**
+   * @return The time in milliseconds after which an unused TPT instance is closed, never if less or
+   *         equal zero
+   */
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   * @return The time in milliseconds after which a TPT instance is closed as soon as it is not used
+   *         anymore, never if less or equal zero
+   */
+  public long getMaxLifetime() {
+    return maxLifetime;
+  }
+
+}
@@ -0,0 +1,117 @@
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the state of the TPT files when they were opened by the plugin, so an already open
+ * project can be reused by the following callables instead of opening it again. This class lives
+ * in the JVM of the agent. A project is identified by the TPT instance and the path of the TPT file.
+ * The state of a file is its last modification time and its size. If the file changed since it was
+ * opened, e.g. by a checkout of the workspace, the open project is outdated and has to be opened
+ * again. The {@link ScenarioIndex} of an open project is kept as well until the project is closed
+ * or opened again.
+ */
+final class TptProjectCache {
+
+  private static final TptProjectCache INSTANCE = new TptProjectCache();
+
+  private final Map<String, FileState> openedStates = new ConcurrentHashMap<>();
+
+  private final Map<String, ScenarioIndex> scenarioIndexes = new ConcurrentHashMap<>();
+
+  private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+  private TptProjectCache() {
+  }
+
+  /**
+   * @return the cache of this agent
+   */
+  static TptProjectCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the key of the project of the given file in the TPT instance with the given key
+   */
+  static String getKey(String tptKey, File file) {
+    return tptKey + "|" + file.getAbsolutePath();
+  }
+
+  /**
+   * @return an object to synchronize on while opening or closing the project with the given key
+   */
+  Object getLock(String key) {
+    return locks.computeIfAbsent(key, k -> new Object());
+  }
+
+  /**
+   * @return <code>true</code> if the project was not opened by the plugin or its file did not change
+   *         since it was opened
+   */
+  boolean isUpToDate(String key, File file) {
+    FileState opened = openedStates.get(key);
+    return opened == null || opened.equals(new FileState(file));
+  }
+
+  /**
+   * Remembers the current state of the file of a project that was opened or reused.
+   */
+  void opened(String key, File file) {
+    openedStates.put(key, new FileState(file));
+  }
+
+  /**
+   * Forgets the state and the scenario index of a project that was closed.
+   */
+  void closed(String key) {
+    openedStates.remove(key);
+    scenarioIndexes.remove(key);
+  }
+
+  /**
+   * @return the scenario index of the open project with the given key or <code>null</code> if none
+   *         was created since the project was opened
+   */
+  ScenarioIndex getScenarioIndex(String key) {
+    return scenarioIndexes.get(key);
+  }
+
+  /**
+   * Remembers the scenario index of the open project with the given key
+   */
+  void putScenarioIndex(String key, ScenarioIndex scenarioIndex) {
+    scenarioIndexes.put(key, scenarioIndex);
+  }
+
+  /**
+   * The state of a TPT file
+   */
+  private static final class FileState {
+
+    private final long lastModified;
+
+    private final long length;
+
+    FileState(File file) {
+      this.lastModified = file.lastModified();
+      this.length = file.length();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof FileState)) {
+        return false;
+      }
+      FileState other = (FileState)obj;
+      return lastModified == other.lastModified && length == other.length;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(lastModified) * 31 + Long.hashCode(length);
+    }
+  }
+}
@@ -22,26 +22,16 @@ package com.piketec.jenkins.plugins.tpt.publisher;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.DataBoundConstructor;
-import org.xml.sax.SAXException;
 
 import com.piketec.jenkins.plugins.tpt.InvisibleActionTPTExecution;
-import com.piketec.jenkins.plugins.tpt.Publish;
+import com.piketec.jenkins.plugins.tpt.TestSummary;
 import com.piketec.jenkins.plugins.tpt.TptLogger;
 import com.piketec.jenkins.plugins.tpt.Utils;
 
@@ -119,16 +109,17 @@ public class TPTReportPublisher extends Recorder implements SimpleBuildStep {
       if (reportDir.exists()) {
         Utils.copyRecursive(reportDir, new FilePath(dirExConfig), logger);
       }
-      FilePath reportXML = new FilePath(testDataDir, "test_summary.xml");
+      FilePath reportXML = new FilePath(testDataDir, TestSummary.FILE_NAME);
       if (reportXML.exists()) {
         TPTFile newTPTFile = new TPTFile(tptFileName, cfg.getConfiguration(), cfg.getId());
-        // get the remote path, then cut the path and get just what is needed (the last part),
-        // see getLinkToFailedReport() in TPTReportSAXHandler.
-        // Because of the GenerateOverviewReport bug, we should check if there are
-        // testcase_information.xml, if there are not any of them, pass a flag to the parser.
-        boolean isFileCorrupt = checkForTestCaseInformation(testDataDir);
-        parse(reportXML, newTPTFile, failedTests, reportDir.getRemote(), cfg.getConfiguration(),
-            logger, isFileCorrupt);
+        try {
+          // get the remote path, then cut the path and get just what is needed (the last part),
+          // see getLinkToFailedReport() in TPTReportSummaryEvaluator.
+          new TPTReportSummaryEvaluator(reportDir.getRemote(), cfg.getConfiguration())
+              .evaluate(testDataDir, newTPTFile, failedTests, logger);
+        } catch (IOException e) {
+          logger.error(e.getMessage());
+        }
         tptFiles.add(newTPTFile);
       } else {
         logger.error("There is no test_summary.xml for the file \"" + tptFileName
@@ -177,53 +168,6 @@ public class TPTReportPublisher extends Recorder implements SimpleBuildStep {
     }
   }
 
-  private boolean checkForTestCaseInformation(FilePath testDataDir)
-      throws IOException, InterruptedException {
-    Collection<FilePath> files = new HashSet<>();
-    Publish.find(testDataDir, "testcase_information.xml", files);
-    boolean containsTestcaseInformation = false;
-    FilePath summaryXMl = new FilePath(testDataDir, "test_summary.xml");
-    if (summaryXMl.exists()) {
-      try (InputStream inputStream = summaryXMl.read()) {
-        String result = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-        containsTestcaseInformation = result.contains("TestcaseInformation");
-      }
-    }
-    // File is only corrupt, when there arent any testcase_information and it does not contain any
-    // testcaseinformation tag.
-    return files.size() == 0 && !containsTestcaseInformation;
-  }
-
-  /**
-   * Xml SAXparser
-   * 
-   * @param xmlFile
-   * @param tptFile
-   * @param failedTests
-   * @param reportDirOnRemote
-   * @param executionConfiguration
-   * @param isFileCorrupt
-   * @throws InterruptedException
-   */
-  private void parse(FilePath xmlFile, TPTFile tptFile, ArrayList<TPTTestCase> failedTests,
-                     String reportDirOnRemote, String executionConfiguration, TptLogger logger,
-                     boolean isFileCorrupt)
-      throws InterruptedException {
-    SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
-
-    try {
-      SAXParser saxParser = saxParserFactory.newSAXParser();
-      TPTReportSAXHandler handler = new TPTReportSAXHandler(tptFile, failedTests, reportDirOnRemote,
-          executionConfiguration, isFileCorrupt, logger);
-      try (InputStream inputStream = xmlFile.read()) {
-        saxParser.parse(inputStream, handler);
-      }
-    } catch (ParserConfigurationException | SAXException | IOException e) {
-      logger.error(e.getMessage());
-    }
-
-  }
-
   @Override
   public DescriptorImpl getDescriptor() {
     return (DescriptorImpl)super.getDescriptor();
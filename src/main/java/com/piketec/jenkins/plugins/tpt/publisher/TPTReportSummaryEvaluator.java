@@ -0,0 +1,358 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2018 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt.publisher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.piketec.jenkins.plugins.tpt.Publish;
+import com.piketec.jenkins.plugins.tpt.TestSummary;
+import com.piketec.jenkins.plugins.tpt.TestSummary.ResultEntry;
+import com.piketec.jenkins.plugins.tpt.TestSummary.TestcaseEntry;
+import com.piketec.jenkins.plugins.tpt.TptLogger;
+import com.piketec.jenkins.plugins.tpt.TptResult;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Evaluates the content of a TPT test_summary.xml file for the report. The file is parsed and
+ * evaluated on the machine it is located on, only the counts of the results and the test cases
+ * that are not passed are transferred.
+ * 
+ * @author FInfantino, PikeTec GmbH
+ */
+class TPTReportSummaryEvaluator
+    extends MasterToSlaveFileCallable<TPTReportSummaryEvaluator.Evaluation> {
+
+  private static final long serialVersionUID = 1L;
+
+  private String reportDir;
+
+  private String executionConfiguration;
+
+  /**
+   * This class extracts all the relevant data from the parsed "test_summary.xml".
+   * 
+   * @param reportDirOnRemote
+   *          The report directory. Needed to resolve paths to report files
+   * @param executionConfiguration
+   *          The name of the execution configuration
+   */
+  public TPTReportSummaryEvaluator(String reportDirOnRemote, String executionConfiguration) {
+    this.reportDir = reportDirOnRemote;
+    this.executionConfiguration = executionConfiguration;
+  }
+
+  /**
+   * Evaluates the test_summary.xml of the test data directory on the machine it is located on and
+   * adds the results to the TPT file and the test cases that are not passed to the list of failed
+   * tests.
+   * 
+   * @param testDataDir
+   *          The directory containing the test_summary.xml
+   * @param tptFile
+   *          The data container that will be enriched with the results
+   * @param failedTests
+   *          The list that will be filled with all test cases that are not passed
+   * @param logger
+   *          to display the problems found during the evaluation
+   * @throws IOException
+   *           if the file does not exist or cannot be read
+   * @throws InterruptedException
+   *           If the job was interrupted
+   */
+  void evaluate(FilePath testDataDir, TPTFile tptFile, List<TPTTestCase> failedTests,
+                TptLogger logger)
+      throws IOException, InterruptedException {
+    Evaluation evaluation = testDataDir.act(this);
+    for (String error : evaluation.errors) {
+      logger.error(error);
+    }
+    tptFile.setPassed(tptFile.getPassed() + evaluation.passed);
+    tptFile.setFailed(tptFile.getFailed() + evaluation.failed);
+    tptFile.setInconclusive(tptFile.getInconclusive() + evaluation.inconclusive);
+    tptFile.setExecutionError(tptFile.getExecutionError() + evaluation.executionError);
+    tptFile.setTotal(tptFile.getTotal() + evaluation.getTotal());
+    for (FailedTest failedTest : evaluation.failedTests) {
+      failedTests.add(failedTest.toTPTTestCase(tptFile, executionConfiguration));
+    }
+  }
+
+  @Override
+  public Evaluation invoke(File testDataDir, VirtualChannel channel)
+      throws IOException, InterruptedException {
+    // parsed on the agent, shared with the JUnit export of the same build
+    File xmlFile = new File(testDataDir, TestSummary.FILE_NAME);
+    TestSummary summary = TestSummary.read(xmlFile);
+    // Because of the GenerateOverviewReport bug, we should check if there are
+    // testcase_information.xml, if there are not any of them, the test cases failed very early.
+    boolean isFileCorrupt = Publish.isTestDataCorrupt(testDataDir);
+    return evaluate(summary, isFileCorrupt);
+  }
+
+  /**
+   * Evaluates a parsed test_summary.xml.
+   * 
+   * @param summary
+   *          The parsed test_summary.xml
+   * @param isFileCorrupt
+   *          if the test_summary.xml is corrupt the test cases were failed very early and we have
+   *          to create the failure manually.
+   * @return the counts of the results and the test cases that are not passed
+   */
+  Evaluation evaluate(TestSummary summary, boolean isFileCorrupt) {
+    Evaluation evaluation = new Evaluation();
+    // Key id , Value TasCase Name
+    Map<String, String> nameAndId = new HashMap<>();
+    for (TestcaseEntry testCase : summary.getTestCases()) {
+      String id = testCase.getId();
+      String name = testCase.getName();
+      nameAndId.put(id, name);
+      // If the file is corrupt, then we are goint to set the test case to Error and add it to the
+      // failed tests and fill the other parameters with default values. This is for the publisher.
+      // If the file is corrupt, than we do not have a testsummary tag, so we are filling the things
+      // here.
+      if (isFileCorrupt) {
+        addCorruptTestCase(evaluation, id, name);
+      }
+    }
+    // setFailedTests
+    for (ResultEntry testCaseResult : summary.getResults()) {
+      String resultString = testCaseResult.getResult();
+      TptResult result = TptResult.fromString(resultString);
+      evaluation.add(result);
+      String id = testCaseResult.getTestcaseId();
+      String reportFile = testCaseResult.getReportFile();
+      if (result != TptResult.PASSED) {
+        FailedTest t = new FailedTest();
+        t.id = id;
+        t.executionDate = testCaseResult.getExecutionDate();
+        t.result = resultString;
+        t.platform = getPlatformName(reportFile, reportDir, evaluation.errors);
+        t.reportFile = getLinkToFailedReport(reportFile, reportDir, evaluation.errors);
+        t.testCaseName = nameAndId.get(id);
+        evaluation.failedTests.add(t);
+      }
+    }
+    // set global assessment results
+    FailedTest failedGlobalAssesslet = null;
+    for (String resultString : summary.getGlobalAssessletResults()) {
+      TptResult result = TptResult.fromString(resultString);
+      if (result != TptResult.PASSED) {
+        if (failedGlobalAssesslet == null) {
+          failedGlobalAssesslet = new FailedTest();
+          failedGlobalAssesslet.testCaseName = "global assessment";
+          failedGlobalAssesslet.reportFile = "globalassessment.html";
+          failedGlobalAssesslet.result = result.name();
+          evaluation.failedTests.add(failedGlobalAssesslet);
+        } else {
+          TptResult oldResult = TptResult.fromString(failedGlobalAssesslet.result);
+          failedGlobalAssesslet.result = TptResult.worstCase(oldResult, result).name();
+        }
+      }
+    }
+    if (failedGlobalAssesslet != null) {
+      evaluation.add(TptResult.fromString(failedGlobalAssesslet.result));
+    }
+    return evaluation;
+  }
+
+  private void addCorruptTestCase(Evaluation evaluation, String id, String name) {
+    evaluation.add(TptResult.EXECUTION_ERROR);
+    FailedTest t = new FailedTest();
+    t.id = id;
+    t.executionDate = new Date().toString();
+    t.result = "ERROR";
+    t.platform = "Corrupted Platform";
+    t.reportFile = "Corrupted File";
+    t.testCaseName = name;
+    evaluation.failedTests.add(t);
+  }
+
+  /**
+   * This method extracts the platform name from the report path. It is assumed, that both input
+   * Strings represent absolute paths.
+   */
+  private static String getPlatformName(String reportFile, String reportDir, List<String> errors) {
+    String relativePath = getLinkToFailedReport(reportFile, reportDir, errors);
+    if (relativePath.isEmpty()) {
+      errors.add("Could not extract the platform name!");
+      return "";
+    }
+    // This is handled with String-methods, because these are Windows Paths or Linux Path and if
+    // we'd use path.relativize while Jenkins is running on a machine with another OS than the paths
+    // are created on, it wouldn't work.
+    int pathSepIdx = relativePath.indexOf("\\");
+    if (pathSepIdx < 0) {
+      pathSepIdx = relativePath.indexOf('/');
+    }
+    if (pathSepIdx >= 0) {
+      return relativePath.substring(0, pathSepIdx);
+    } else {
+      return relativePath;
+    }
+  }
+
+  /**
+   * This method returns the relative path from the report file depending on the report directory.
+   * It is assumed, that both input Strings represent absolute paths.
+   */
+  private static String getLinkToFailedReport(String reportFile, String reportDir,
+                                              List<String> errors) {
+    if (!reportFile.toLowerCase().startsWith(reportDir.toLowerCase())) {
+      errors.add("Can't extract relative path to test case report. At least one of the "
+          + "following paths is not an absolute path: reportFile = " + reportFile
+          + ", reportDirectory = " + reportDir);
+      return "";
+    }
+    if (reportFile.equalsIgnoreCase(reportDir)) {
+      errors.add("Can't extract relative path to test case report. They are equal, "
+          + "even though they shouldn't be: reportFile = " + reportFile + ", reportDirectory = "
+          + reportDir);
+      return "";
+    }
+    // This is handled with String-methods, because these are Windows Paths or Linux Path and if
+    // we'd use path.relativize while Jenkins is running on a machine with another OS than the paths
+    // are created on, it wouldn't work.
+    String substring = reportFile.substring(reportDir.length());
+    if (substring.startsWith("\\") || substring.startsWith("/")) {
+      substring = substring.substring(1);
+    }
+    return substring;
+  }
+
+  /**
+   * The result of the evaluation that is transferred from the agent
+   */
+  static class Evaluation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int passed;
+
+    private int failed;
+
+    private int inconclusive;
+
+    private int executionError;
+
+    private final ArrayList<FailedTest> failedTests = new ArrayList<>();
+
+    private final ArrayList<String> errors = new ArrayList<>();
+
+    private void add(TptResult result) {
+      switch (result) {
+        case EXECUTION_ERROR:
+          executionError++;
+          break;
+        case FAILED:
+          failed++;
+          break;
+        case INCONCLUSIVE:
+          inconclusive++;
+          break;
+        case PASSED:
+          passed++;
+          break;
+      }
+    }
+
+    int getPassed() {
+      return passed;
+    }
+
+    int getFailed() {
+      return failed;
+    }
+
+    int getInconclusive() {
+      return inconclusive;
+    }
+
+    int getExecutionError() {
+      return executionError;
+    }
+
+    int getTotal() {
+      return passed + failed + inconclusive + executionError;
+    }
+
+    List<FailedTest> getFailedTests() {
+      return failedTests;
+    }
+
+    List<String> getErrors() {
+      return errors;
+    }
+  }
+
+  /**
+   * A test case that is not passed, the part of a {@link TPTTestCase} that is read from the
+   * test_summary.xml
+   */
+  static class FailedTest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+
+    private String executionDate;
+
+    private String result;
+
+    private String platform;
+
+    private String reportFile;
+
+    private String testCaseName;
+
+    String getResult() {
+      return result;
+    }
+
+    String getTestCaseName() {
+      return testCaseName;
+    }
+
+    private TPTTestCase toTPTTestCase(TPTFile tptFile, String executionConfiguration) {
+      TPTTestCase t = new TPTTestCase();
+      t.setId(id);
+      t.setExecutionDate(executionDate);
+      t.setResult(result);
+      t.setFileName(tptFile.getFileName());
+      t.setPlatform(platform);
+      t.setReportFile(reportFile);
+      t.setExecutionConfiguration(executionConfiguration);
+      t.setTestCaseName(testCaseName);
+      t.setJenkinsConfigId(tptFile.getJenkinsConfigId());
+      return t;
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ShardPlannerTest {
+
+  private static Map<String, Long> durations(Object... nameAndDuration) {
+    Map<String, Long> durations = new HashMap<>();
+    for (int i = 0; i < nameAndDuration.length; i += 2) {
+      durations.put((String)nameAndDuration[i], ((Number)nameAndDuration[i + 1]).longValue());
+    }
+    return durations;
+  }
+
+  @Test
+  public void partitionByDurationPutsLongestTestCaseIntoLightestPackage() {
+    Map<String, Long> durations = durations("a", 10, "b", 8, "c", 5, "d", 4, "e", 3);
+    List<List<String>> packages =
+        ShardPlanner.partitionByDuration(Arrays.asList("e", "d", "c", "b", "a"), durations, 1, 2);
+    assertEquals(Arrays.asList(Arrays.asList("a", "d"), Arrays.asList("b", "c", "e")), packages);
+  }
+
+  @Test
+  public void partitionByDurationUsesDefaultForUnknownTestCases() {
+    Map<String, Long> durations = durations("a", 10);
+    List<List<String>> packages =
+        ShardPlanner.partitionByDuration(Arrays.asList("a", "b", "c"), durations, 6, 2);
+    assertEquals(Arrays.asList(Collections.singletonList("a"), Arrays.asList("b", "c")),
+        packages);
+  }
+
+  @Test
+  public void partitionByDurationOmitsEmptyPackages() {
+    List<List<String>> packages = ShardPlanner.partitionByDuration(Arrays.asList("a", "b"),
+        Collections.<String, Long> emptyMap(), 1, 5);
+    assertEquals(2, packages.size());
+    packages = ShardPlanner.partitionByDuration(Collections.<String> emptyList(),
+        Collections.<String, Long> emptyMap(), 1, 3);
+    assertTrue(packages.isEmpty());
+  }
+
+  @Test
+  public void partitionByDurationCreatesAtLeastOnePackage() {
+    List<List<String>> packages = ShardPlanner.partitionByDuration(Arrays.asList("a", "b"),
+        Collections.<String, Long> emptyMap(), 1, 0);
+    assertEquals(Collections.singletonList(Arrays.asList("a", "b")), packages);
+  }
+
+  @Test
+  public void sortByDurationSortsByDescendingDurationThenName() {
+    Map<String, Long> durations = durations("a", 1, "b", 5, "d", 3);
+    assertEquals(Arrays.asList("b", "c", "d", "e", "a"),
+        ShardPlanner.sortByDuration(Arrays.asList("e", "d", "c", "b", "a"), durations, 3));
+  }
+
+  @Test
+  public void planWorkerCountUsesAllExecutorsIfWorthIt() {
+    List<String> testCases = Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h");
+    assertEquals(4, ShardPlanner.planWorkerCount(testCases, durations(), 100, 4, 1000));
+  }
+
+  @Test
+  public void planWorkerCountIsLimitedByLongestTestCase() {
+    Map<String, Long> durations = durations("a", 600, "b", 100, "c", 100, "d", 100);
+    List<String> testCases = Arrays.asList("a", "b", "c", "d");
+    assertEquals(2, ShardPlanner.planWorkerCount(testCases, durations, 100, 8, 10));
+  }
+
+  @Test
+  public void planWorkerCountChoosesFewestWorkersForSameMakespan() {
+    // a third worker job would not finish before the one executing "a"
+    Map<String, Long> durations = durations("a", 1000, "b", 100, "c", 100);
+    List<String> testCases = Arrays.asList("a", "b", "c");
+    assertEquals(2, ShardPlanner.planWorkerCount(testCases, durations, 100, 8, 10));
+  }
+
+  @Test
+  public void planWorkerCountIsLimitedByTestCasesAndExecutors() {
+    List<String> testCases = Arrays.asList("a", "b");
+    assertEquals(2, ShardPlanner.planWorkerCount(testCases, durations(), 100, 8, 1));
+    assertEquals(1, ShardPlanner.planWorkerCount(testCases, durations(), 100, 0, 1));
+  }
+
+  @Test
+  public void getTestCasesToRetryReturnsMissingResultsAndExecutionErrors() {
+    Map<String, TptResult> results = new HashMap<>();
+    results.put("passed", TptResult.PASSED);
+    results.put("failed", TptResult.FAILED);
+    results.put("error", TptResult.EXECUTION_ERROR);
+    List<String> toRetry = ShardPlanner.getTestCasesToRetry(results,
+        Arrays.asList("missing", "passed", "error", "failed"));
+    assertEquals(Arrays.asList("missing", "error"), toRetry);
+  }
+
+  @Test
+  public void getTestCasesToRetryIsEmptyWithoutResults() {
+    assertTrue(ShardPlanner.getTestCasesToRetry(null, Arrays.asList("a", "b")).isEmpty());
+  }
+
+  @Test
+  public void parseDuration() {
+    assertEquals(1234, ShardPlanner.parseDuration(" 1234 "));
+    assertEquals(-1, ShardPlanner.parseDuration("1.5"));
+    assertEquals(-1, ShardPlanner.parseDuration(null));
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestCasePoolTest {
+
+  @Test
+  public void claimHandsOutTestCasesInOrder() {
+    TestCasePool pool = new TestCasePool(Arrays.asList("a", "b", "c", "d", "e"), 3);
+    assertEquals(Arrays.asList("a", "b"), pool.claim(2));
+    assertEquals(Arrays.asList("c", "d"), pool.claim(2));
+    assertEquals(Collections.singletonList("e"), pool.claim(2));
+    assertTrue(pool.claim(2).isEmpty());
+    assertEquals(0, pool.size());
+  }
+
+  @Test
+  public void claimTakesAtLeastOneTestCase() {
+    TestCasePool pool = new TestCasePool(Arrays.asList("a", "b"), 3);
+    assertEquals(Collections.singletonList("a"), pool.claim(0));
+    assertEquals(1, pool.size());
+  }
+
+  @Test
+  public void giveBackHandsOutTestCasesLast() {
+    TestCasePool pool = new TestCasePool(Arrays.asList("a", "b", "c", "d"), 3);
+    List<String> batch = pool.claim(2);
+    assertTrue(pool.giveBack(batch).isEmpty());
+    assertEquals(4, pool.size());
+    assertEquals(Arrays.asList("c", "d", "a"), pool.claim(3));
+  }
+
+  @Test
+  public void giveBackDropsTestCasesThatFailedTooOften() {
+    TestCasePool pool = new TestCasePool(Arrays.asList("a", "b"), 2);
+    assertTrue(pool.giveBack(pool.claim(1)).isEmpty());
+    assertEquals(Arrays.asList("b", "a"), pool.getPendingTestCases());
+    pool.claim(1);
+    assertEquals(Collections.singletonList("a"), pool.giveBack(pool.claim(1)));
+    assertEquals(0, pool.size());
+    assertEquals(Collections.singletonList("a"), pool.getGivenUpTestCases());
+  }
+
+  @Test
+  public void everyTestCaseIsTriedAtLeastOnce() {
+    TestCasePool pool = new TestCasePool(Collections.singletonList("a"), 0);
+    assertEquals(Collections.singletonList("a"), pool.giveBack(pool.claim(1)));
+  }
+
+  @Test
+  public void getPendingTestCasesReturnsCopy() {
+    TestCasePool pool = new TestCasePool(Arrays.asList("a", "b"), 3);
+    List<String> pending = pool.getPendingTestCases();
+    pending.clear();
+    assertEquals(Arrays.asList("a", "b"), pool.getPendingTestCases());
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestSummaryTest {
+
+  private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<Summary>\n" + "  <Header ExecutionConfig=\"Default\"/>\n" + "  <Testcases>\n"
+      + "    <Testcase Id=\"1\" Name=\"first\"/>\n" + "    <Testcase Id=\"2\" Name=\"second\"/>\n"
+      + "  </Testcases>\n";
+
+  private static final String RESULTS = "  <TestcaseInformation Testcase=\"1\" Result=\"SUCCESS\""
+      + " ExecutionDate=\"today\" ReportFile=\"C:\\report\\platform\\first.html\"/>\n"
+      + "  <TestcaseInformation Testcase=\"2\" Result=\"FAILED\""
+      + " ExecutionDate=\"today\" ReportFile=\"C:\\report\\platform\\second.html\"/>\n"
+      + "  <GlobAssesslet Result=\"INCONCLUSIVE\"/>\n" + "  <GlobAssesslet/>\n";
+
+  private static final String FOOTER = "</Summary>\n";
+
+  private static TestSummary parse(String xml) throws IOException {
+    return TestSummary.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void parseReadsAllEntries() throws IOException {
+    TestSummary summary = parse(HEADER + RESULTS + FOOTER);
+    assertEquals("Default", summary.getExecutionConfigName());
+    assertEquals(2, summary.getTestCases().size());
+    assertEquals("2", summary.getTestCases().get(1).getId());
+    assertEquals("second", summary.getTestCases().get(1).getName());
+    assertEquals(2, summary.getResults().size());
+    assertEquals("1", summary.getResults().get(0).getTestcaseId());
+    assertEquals("SUCCESS", summary.getResults().get(0).getResult());
+    assertEquals("C:\\report\\platform\\first.html", summary.getResults().get(0).getReportFile());
+    assertEquals(Arrays.asList("INCONCLUSIVE"), summary.getGlobalAssessletResults());
+    assertTrue(summary.hasTestcaseInformation());
+  }
+
+  @Test
+  public void parseWithoutTestcaseInformation() throws IOException {
+    TestSummary summary = parse(HEADER + FOOTER);
+    assertEquals(2, summary.getTestCases().size());
+    assertTrue(summary.getResults().isEmpty());
+    assertFalse(summary.hasTestcaseInformation());
+  }
+
+  @Test(expected = IOException.class)
+  public void parseTruncatedFileFails() throws IOException {
+    String xml = HEADER + RESULTS;
+    parse(xml.substring(0, xml.indexOf("<TestcaseInformation Testcase=\"2")));
+  }
+
+  @Test
+  public void containsTestcaseInformation() throws IOException {
+    assertTrue(containsTestcaseInformation(HEADER + RESULTS + FOOTER));
+    assertFalse(containsTestcaseInformation(HEADER + FOOTER));
+  }
+
+  @Test
+  public void containsTestcaseInformationIsCaseSensitive() throws IOException {
+    assertFalse(containsTestcaseInformation(HEADER + "<testcaseinformation/>\n" + FOOTER));
+  }
+
+  @Test
+  public void containsTestcaseInformationBehindMalformedPart() throws IOException {
+    assertTrue(containsTestcaseInformation(HEADER + "<broken attr=>\n" + RESULTS + FOOTER));
+    assertFalse(containsTestcaseInformation(HEADER + "<broken attr=>\n" + FOOTER));
+  }
+
+  @Test
+  public void containsTestcaseInformationSpanningTwoChunks() throws IOException {
+    StringBuilder sb = new StringBuilder(HEADER);
+    // the text starts 5 bytes before the end of the first chunk of the search
+    while (sb.length() < 64 * 1024 - 5) {
+      sb.append(' ');
+    }
+    sb.append("<TestcaseInformation/>").append(FOOTER);
+    assertTrue(containsTestcaseInformation(sb.toString()));
+  }
+
+  @Test
+  public void containsTestcaseInformationOfMissingFile() throws IOException {
+    assertFalse(TestSummary.containsTestcaseInformation(new File("does_not_exist.xml")));
+  }
+
+  @Test
+  public void readUsesCachedSummaryUntilFileChanges() throws IOException {
+    File file = File.createTempFile("test_summary", ".xml");
+    try {
+      Files.write(file.toPath(), (HEADER + FOOTER).getBytes(StandardCharsets.UTF_8));
+      TestSummary summary = TestSummary.read(file);
+      assertSame(summary, TestSummary.read(file));
+      Files.write(file.toPath(), (HEADER + RESULTS + FOOTER).getBytes(StandardCharsets.UTF_8));
+      TestSummary changed = TestSummary.read(file);
+      assertNotSame(summary, changed);
+      assertTrue(changed.hasTestcaseInformation());
+    } finally {
+      Files.delete(file.toPath());
+    }
+  }
+
+  private static boolean containsTestcaseInformation(String xml) throws IOException {
+    File file = File.createTempFile("test_summary", ".xml");
+    try {
+      Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+      return TestSummary.containsTestcaseInformation(file);
+    } finally {
+      Files.delete(file.toPath());
+    }
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TptPortAllocatorTest {
+
+  @Test
+  public void claimReturnsLowestFreePort() {
+    String node = "claimReturnsLowestFreePort";
+    assertEquals(1099, TptPortAllocator.claim(node, 1099, 1101, "build"));
+    assertEquals(1100, TptPortAllocator.claim(node, 1099, 1101, "build"));
+    assertEquals(1101, TptPortAllocator.claim(node, 1099, 1101, "build"));
+    assertEquals(-1, TptPortAllocator.claim(node, 1099, 1101, "build"));
+    for (int port = 1099; port <= 1101; port++) {
+      TptPortAllocator.release(node, port);
+    }
+  }
+
+  @Test
+  public void releasedPortCanBeClaimedAgain() {
+    String node = "releasedPortCanBeClaimedAgain";
+    assertEquals(1099, TptPortAllocator.claim(node, 1099, 1100, "build"));
+    assertEquals(1100, TptPortAllocator.claim(node, 1099, 1100, "build"));
+    TptPortAllocator.release(node, 1099);
+    assertEquals(1099, TptPortAllocator.claim(node, 1099, 1100, "build"));
+    TptPortAllocator.release(node, 1099);
+    TptPortAllocator.release(node, 1100);
+  }
+
+  @Test
+  public void nodesHaveOwnPorts() {
+    String node1 = "nodesHaveOwnPorts1";
+    String node2 = "nodesHaveOwnPorts2";
+    assertEquals(1099, TptPortAllocator.claim(node1, 1099, 1099, "build"));
+    assertEquals(1099, TptPortAllocator.claim(node2, 1099, 1099, "build"));
+    assertEquals(-1, TptPortAllocator.claim(node1, 1099, 1099, "build"));
+    TptPortAllocator.release(node1, 1099);
+    TptPortAllocator.release(node2, 1099);
+  }
+
+  @Test
+  public void getHoldersNamesBuildsHoldingPortsOfRange() {
+    String node = "getHoldersNamesBuildsHoldingPortsOfRange";
+    assertEquals(1099, TptPortAllocator.claim(node, 1099, 1101, "worker #1"));
+    assertEquals(1100, TptPortAllocator.claim(node, 1099, 1101, "worker #2"));
+    assertEquals(Arrays.asList("1099 (worker #1)", "1100 (worker #2)"),
+        TptPortAllocator.getHolders(node, 1099, 1101));
+    assertEquals(Arrays.asList("1100 (worker #2)"), TptPortAllocator.getHolders(node, 1100, 1101));
+    TptPortAllocator.release(node, 1099);
+    TptPortAllocator.release(node, 1100);
+    assertTrue(TptPortAllocator.getHolders(node, 1099, 1101).isEmpty());
+  }
+
+  @Test
+  public void releaseOfUnclaimedPortIsIgnored() {
+    String node = "releaseOfUnclaimedPortIsIgnored";
+    TptPortAllocator.release(node, 1099);
+    assertEquals(1099, TptPortAllocator.claim(node, 1099, 1099, "build"));
+    TptPortAllocator.release(node, 1099);
+  }
+
+}
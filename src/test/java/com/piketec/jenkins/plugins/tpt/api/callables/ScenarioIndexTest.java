@@ -0,0 +1,184 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt.api.callables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.piketec.tpt.api.RemoteList;
+import com.piketec.tpt.api.Scenario;
+import com.piketec.tpt.api.ScenarioGroup;
+import com.piketec.tpt.api.ScenarioOrGroup;
+import com.piketec.tpt.api.TptApi;
+import com.piketec.tpt.api.util.WalkResult;
+
+public class ScenarioIndexTest {
+
+  private final Map<String, Integer> remoteCalls = new HashMap<>();
+
+  private final Map<ScenarioGroup, List<WalkResult<ScenarioGroup, ScenarioGroup, Scenario>>> walks =
+      new HashMap<>();
+
+  /**
+   * Project with the top level items "single", "full" and "partial". The group "full" contains
+   * "a" and the group "sub" with "b", the group "partial" contains "c" and "d".
+   */
+  private final Scenario single = scenario("single");
+
+  private final Scenario a = scenario("a");
+
+  private final Scenario b = scenario("b");
+
+  private final Scenario c = scenario("c");
+
+  private final Scenario d = scenario("d");
+
+  private final ScenarioGroup sub = group();
+
+  private final ScenarioGroup full = group();
+
+  private final ScenarioGroup partial = group();
+
+  private ScenarioIndex createIndex() throws RemoteException {
+    walks.put(full,
+        Arrays.asList(walk(full, Collections.singletonList(sub), Collections.singletonList(a)),
+            walk(sub, Collections.<ScenarioGroup> emptyList(), Collections.singletonList(b))));
+    walks.put(partial, Collections.singletonList(
+        walk(partial, Collections.<ScenarioGroup> emptyList(), Arrays.asList(c, d))));
+    List<ScenarioOrGroup> topLevel = Arrays.asList(single, full, partial);
+    return ScenarioIndex.create(api(), topLevelList(topLevel));
+  }
+
+  @Test
+  public void findReturnsTestCasesByName() throws RemoteException {
+    ScenarioIndex index = createIndex();
+    assertEquals(new HashSet<>(Arrays.asList(a, d)),
+        new HashSet<>(index.find(Arrays.asList("a", "d", "unknown"))));
+  }
+
+  @Test
+  public void namesAndIdsAreRequestedOnce() throws RemoteException {
+    ScenarioIndex index = createIndex();
+    assertEquals(5, (int)remoteCalls.get("getName"));
+    assertEquals(5, (int)remoteCalls.get("getIdString"));
+    assertEquals("b", index.getName(b));
+    assertEquals("id-b", index.getId(b));
+    assertEquals(new HashSet<>(Arrays.asList("a", "c")), index.getNames(Arrays.asList(a, c)));
+    assertEquals(5, (int)remoteCalls.get("getName"));
+    assertEquals(5, (int)remoteCalls.get("getIdString"));
+  }
+
+  @Test
+  public void getByIdReturnsTestCaseWithId() throws RemoteException {
+    ScenarioIndex index = createIndex();
+    assertEquals(c, index.getById("id-c"));
+    assertNull(index.getById("c"));
+    assertEquals(5, index.size());
+  }
+
+  @Test
+  public void coverUsesGroupsThatAreSelectedCompletely() throws RemoteException {
+    ScenarioIndex index = createIndex();
+    assertEquals(Arrays.asList(single, full, c),
+        index.cover(Arrays.asList(single, a, b, c)));
+    assertEquals(Arrays.asList(full, partial), index.cover(Arrays.asList(a, b, c, d)));
+    assertEquals(Arrays.asList(sub, partial), index.cover(Arrays.asList(b, c, d)));
+    assertEquals(Collections.singletonList(sub), index.cover(Collections.singletonList(b)));
+    assertEquals(Collections.singletonList(d), index.cover(Collections.singletonList(d)));
+    assertTrue(index.cover(Collections.<Scenario> emptyList()).isEmpty());
+  }
+
+  private static WalkResult<ScenarioGroup, ScenarioGroup, Scenario>
+      walk(ScenarioGroup root, List<ScenarioGroup> groups, List<Scenario> elements) {
+    return new WalkResult<>(root, new ArrayList<>(groups), new ArrayList<>(elements));
+  }
+
+  private void count(String method) {
+    remoteCalls.merge(method, 1, Integer::sum);
+  }
+
+  /**
+   * @return a proxy for a remote interface that answers the identity methods of {@link Object}
+   *         and the given methods, every other call fails
+   */
+  private <T> T proxy(Class<T> type, Map<String, Object> results) {
+    return type.cast(Proxy.newProxyInstance(ScenarioIndexTest.class.getClassLoader(),
+        new Class< ? >[] { type }, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "equals":
+              return proxy == args[0];
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "toString":
+              return type.getSimpleName() + "@" + System.identityHashCode(proxy);
+            default:
+              if (results.containsKey(method.getName())) {
+                count(method.getName());
+                return results.get(method.getName());
+              }
+              throw new UnsupportedOperationException(method.getName());
+          }
+        }));
+  }
+
+  private Scenario scenario(String name) {
+    Map<String, Object> results = new HashMap<>();
+    results.put("getName", name);
+    results.put("getIdString", "id-" + name);
+    return proxy(Scenario.class, results);
+  }
+
+  private ScenarioGroup group() {
+    return proxy(ScenarioGroup.class, Collections.<String, Object> emptyMap());
+  }
+
+  private RemoteList<ScenarioOrGroup> topLevelList(List<ScenarioOrGroup> items) {
+    @SuppressWarnings("unchecked")
+    RemoteList<ScenarioOrGroup> list = proxy(RemoteList.class,
+        Collections.<String, Object> singletonMap("getItems", new ArrayList<>(items)));
+    return list;
+  }
+
+  private TptApi api() {
+    return TptApi.class.cast(Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class< ? >[] { TptApi.class }, (proxy, method, args) -> {
+          if (method.getName().equals("walkScenarios")) {
+            count("walkScenarios");
+            return walks.get(args[0]);
+          }
+          throw new UnsupportedOperationException(method.getName());
+        }));
+  }
+
+}
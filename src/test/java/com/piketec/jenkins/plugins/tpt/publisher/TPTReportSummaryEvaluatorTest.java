@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2024 PikeTec GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.piketec.jenkins.plugins.tpt.publisher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.piketec.jenkins.plugins.tpt.TestSummary;
+import com.piketec.jenkins.plugins.tpt.publisher.TPTReportSummaryEvaluator.Evaluation;
+import com.piketec.jenkins.plugins.tpt.publisher.TPTReportSummaryEvaluator.FailedTest;
+
+public class TPTReportSummaryEvaluatorTest {
+
+  private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<Summary>\n" + "  <Header ExecutionConfig=\"Default\"/>\n" + "  <Testcases>\n"
+      + "    <Testcase Id=\"1\" Name=\"first\"/>\n" + "    <Testcase Id=\"2\" Name=\"second\"/>\n"
+      + "    <Testcase Id=\"3\" Name=\"third\"/>\n" + "  </Testcases>\n";
+
+  private static final String RESULTS = "  <TestcaseInformation Testcase=\"1\" Result=\"SUCCESS\""
+      + " ExecutionDate=\"today\" ReportFile=\"C:\\report\\platform\\first.html\"/>\n"
+      + "  <TestcaseInformation Testcase=\"2\" Result=\"FAILED\""
+      + " ExecutionDate=\"today\" ReportFile=\"C:\\report\\platform\\second.html\"/>\n"
+      + "  <TestcaseInformation Testcase=\"3\" Result=\"SUCCESS\""
+      + " ExecutionDate=\"today\" ReportFile=\"C:\\report\\platform\\third.html\"/>\n"
+      + "  <GlobAssesslet Result=\"INCONCLUSIVE\"/>\n";
+
+  private final TPTReportSummaryEvaluator evaluator =
+      new TPTReportSummaryEvaluator("C:\\report", "Default");
+
+  @Test
+  public void evaluateCountsResultsAndCollectsFailedTests() throws IOException {
+    Evaluation evaluation = evaluate(HEADER + RESULTS + "</Summary>\n", false);
+    assertEquals(2, evaluation.getPassed());
+    assertEquals(1, evaluation.getFailed());
+    assertEquals(1, evaluation.getInconclusive());
+    assertEquals(0, evaluation.getExecutionError());
+    assertEquals(4, evaluation.getTotal());
+    List<FailedTest> failedTests = evaluation.getFailedTests();
+    assertEquals(2, failedTests.size());
+    assertEquals("second", failedTests.get(0).getTestCaseName());
+    assertEquals("FAILED", failedTests.get(0).getResult());
+    assertEquals("global assessment", failedTests.get(1).getTestCaseName());
+    assertTrue(evaluation.getErrors().isEmpty());
+  }
+
+  @Test
+  public void evaluateReportsAllTestCasesOfCorruptFileAsError() throws IOException {
+    Evaluation evaluation = evaluate(HEADER + "</Summary>\n", true);
+    assertEquals(3, evaluation.getExecutionError());
+    assertEquals(3, evaluation.getTotal());
+    assertEquals(3, evaluation.getFailedTests().size());
+  }
+
+  @Test(expected = IOException.class)
+  public void evaluateTruncatedFileFails() throws IOException {
+    String xml = HEADER + RESULTS;
+    evaluate(xml.substring(0, xml.indexOf("<TestcaseInformation Testcase=\"3")), false);
+  }
+
+  private Evaluation evaluate(String xml, boolean isFileCorrupt) throws IOException {
+    File file = File.createTempFile("test_summary", ".xml");
+    try {
+      Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+      return evaluator.evaluate(TestSummary.read(file), isFileCorrupt);
+    } finally {
+      Files.delete(file.toPath());
+    }
+  }
+
+}